@@ -0,0 +1,99 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on the act thread for work done on background threads.
+ *
+ * Greenfoot actors and worlds may only be changed from the thread that
+ * calls <code>act()</code>. A background thread that finished loading or
+ * a network call posts the rest of the work with <code>execute()</code>,
+ * which never blocks, and the world runs the posted tasks in order from its
+ * <code>act()</code> method by calling <code>runPending()</code>.
+ *
+ * Each call runs tasks until the queue is empty or the time budget for the
+ * frame is used up, so a burst of completions is spread over several frames
+ * instead of making one frame slow. At least one task runs per call, so
+ * the queue always drains.
+ *
+ * @version 1.0
+ */
+public class ActExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private volatile long budget;
+
+    /**
+     * Constructs an executor with a time budget per frame.
+     *
+     * @param budgetMillis The time in milliseconds that the tasks may take
+     *        in each frame.
+     */
+    public ActExecutor(long budgetMillis) {
+        setBudget(budgetMillis);
+    }
+
+    /**
+     * Posts a task to run on the act thread. May be called from any thread.
+     *
+     * @param task The task to run.
+     * @throws NullPointerException if the task is null.
+     */
+    public void execute(Runnable task) {
+        if (task == null) throw new NullPointerException("task is null.");
+        tasks.add(task);
+    }
+
+    /**
+     * Sets the time that the tasks may take in each frame.
+     *
+     * @param budgetMillis The time budget in milliseconds.
+     */
+    public void setBudget(long budgetMillis) {
+        budget = TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMillis));
+    }
+
+    /**
+     * Returns the time that the tasks may take in each frame.
+     *
+     * @return The time budget in milliseconds.
+     */
+    public long getBudget() {
+        return TimeUnit.NANOSECONDS.toMillis(budget);
+    }
+
+    /**
+     * Returns whether tasks are waiting to run.
+     *
+     * @return <code>true</code> if tasks are waiting; otherwise
+     *         <code>false</code>.
+     */
+    public boolean hasPending() {
+        return !tasks.isEmpty();
+    }
+
+    /**
+     * Runs posted tasks until none are left or the time budget is used up.
+     * Call from the act thread once per frame. A task that throws is
+     * reported and does not stop the others.
+     *
+     * @return The number of tasks run.
+     */
+    public int runPending() {
+        if (tasks.isEmpty()) return 0;
+        long start = System.nanoTime();
+        int count = 0;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException re) {
+                System.out.println("WARNING: task failed: " + re);
+                re.printStackTrace();
+            }
+            count++;
+            if (System.nanoTime() - start >= budget) break;
+        }
+        return count;
+    }
+}
@@ -9,6 +9,12 @@ public class Answer extends Actor {
     private String text;
     private boolean correct;
     private GameManager world;
+    // Position in the question's answer list, shown as "a.", "b." and so on
+    private int index;
+    // Images for the normal and hovered states, drawn once per label
+    private GreenfootImage normalImage;
+    private GreenfootImage hoverImage;
+    private boolean hovered;
 
     /**
      * Construct a new answer.
@@ -39,10 +45,24 @@ public class Answer extends Actor {
         MouseInfo mouse = Greenfoot.getMouseInfo();
         if (mouse == null) return;
 
-        if (mouse.getActor() == this) {
-            draw(Color.GREEN);
-        } else {
-            draw(Color.WHITE);
+        boolean over = mouse.getActor() == this;
+        if (over != hovered) {
+            hovered = over;
+            setImage(hovered ? hoverImage : normalImage);
+        }
+    }
+
+    /**
+     * Sets the position of this answer in its question's list of answers,
+     * which determines the label drawn before the text.
+     *
+     * @param answerIndex The index of this answer in the list.
+     */
+    void setIndex(int answerIndex) {
+        if (answerIndex != index) {
+            index = answerIndex;
+            normalImage = null;
+            hoverImage = null;
         }
     }
 
@@ -71,22 +91,26 @@ public class Answer extends Actor {
      */
     public void addedToWorld(World w) {
         world = (GameManager) w;
-        draw(Color.WHITE);
+        if (normalImage == null) {
+            normalImage = draw(Color.WHITE);
+            hoverImage = draw(Color.GREEN);
+        }
+        hovered = false;
+        setImage(normalImage);
     }
 
     /**
-     * Draw the answer to screen.
+     * Draw the answer in the specified color.
      *
      * @param colour The color in which to draw the answer.
+     * @return The image of the answer.
      */
-    private void draw(Color colour) {
-        Question question = world.getCurrentQuestion();
-        int answerNumber = question.getIndex(this);
-        String answerID = Character.toString((char) ('a' + answerNumber));
+    private GreenfootImage draw(Color colour) {
+        String answerID = Character.toString((char) ('a' + index));
         GreenfootImage image = new GreenfootImage(WIDTH, HEIGHT);
         image.setColor(colour);
         image.setFont(GameManager.SMALL_FONT);
         image.drawString(answerID + ". " + text, 0, ASCENT);
-        setImage(image);
+        return image;
     }
 }
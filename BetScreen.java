@@ -2,7 +2,6 @@ import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
-import java.awt.Graphics;
 
 /**
  * Handles betting for the final round.
@@ -131,10 +130,8 @@ public class BetScreen extends Actor implements ActionListener {
      */
     private int printCentered(String line, Font font, int x, int y) {
         img.setFont(font);
-        Graphics g = img.getAwtImage().getGraphics();
-        g.setFont(font);
-        FontMetrics fm = g.getFontMetrics();
-        x += (img.getWidth() - fm.stringWidth(line)) / 2;
+        FontMetrics fm = TextMetrics.getFontMetrics(font);
+        x += (img.getWidth() - TextMetrics.stringWidth(font, line)) / 2;
         y += Math.round(fm.getHeight() * 1.2f);
         img.drawString(line, x, y);
         return y;
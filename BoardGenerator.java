@@ -0,0 +1,266 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Generates a board by sampling categories from several question files.
+ *
+ * Every file is streamed once, in parallel, with a reservoir sampler that
+ * keeps at most <code>GameManager.COLS</code> categories and one final round
+ * question per file. Only the lines of the sampled categories are kept, so
+ * no file is ever fully loaded. The samples of all files are then merged
+ * so that every category with questions is equally likely to be chosen.
+ *
+ * Each file is sampled with its own random numbers derived from the seed,
+ * so the same seed and files always produce the same board.
+ *
+ * @version 1.0
+ */
+public class BoardGenerator {
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    private static final int FINAL_GROUP = GameManager.MAX_CATEGORIES - 1;
+    private final ClassLoader loader;
+
+    /**
+     * Constructs a generator that reads question files as resources.
+     *
+     * @param classLoader The class loader used to find question files.
+     */
+    public BoardGenerator(ClassLoader classLoader) {
+        loader = classLoader;
+    }
+
+    /**
+     * Generates a round from the specified question files.
+     *
+     * @param filenames The names of the question files.
+     * @param seed The seed for choosing categories and questions.
+     * @return The generated round.
+     * @throws IOException if a question file cannot be read.
+     */
+    public Round generate(String[] filenames, long seed) throws IOException {
+        List<Sample> samples;
+        try {
+            samples = POOL.invoke(new SampleTask(filenames, 0,
+                filenames.length, seed));
+        } catch (SampleException se) {
+            throw se.getCause();
+        }
+
+        Random rnd = new Random(seed);
+        List<Category> board = merge(samples, false, GameManager.COLS, rnd);
+        List<Category> last = merge(samples, true, 1, rnd);
+
+        QuestionParser parser = new QuestionParser(
+            GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+        String[] cats = new String[GameManager.MAX_CATEGORIES];
+        QuestionParser.Entry[] questions =
+            new QuestionParser.Entry[GameManager.MAX_QUESTS];
+        int count = 0;
+        for (int col = 0; col < board.size(); col++) {
+            Category cat = board.get(col);
+            parser.readLines(cat.lines);
+            QuestionParser.Entry[] entries = parser.getEntries();
+            cats[col] = parser.getCategories()[cat.group];
+            int first = cat.group * GameManager.ROWS;
+            for (int row = 0; row < GameManager.ROWS; row++) {
+                QuestionParser.Entry e = entries[first + row];
+                if (e != null && e.text != null) {
+                    questions[col * GameManager.ROWS + row] = e;
+                    count++;
+                }
+            }
+        }
+        if (last.size() > 0) {
+            parser.readLines(last.get(0).lines);
+            QuestionParser.Entry e =
+                parser.getEntries()[GameManager.MAX_QUESTS - 1];
+            cats[FINAL_GROUP] = parser.getCategories()[FINAL_GROUP];
+            if (e != null && e.text != null) {
+                questions[GameManager.MAX_QUESTS - 1] = e;
+            }
+        }
+        return new Round(cats, questions, count);
+    }
+
+    /**
+     * Merges the per-file samples into a uniform sample of <code>n</code>
+     * categories without replacement. A file is picked with probability
+     * proportional to the number of its categories not yet taken.
+     */
+    private static List<Category> merge(List<Sample> samples, boolean finals,
+            int n, Random rnd) {
+        int[] remaining = new int[samples.size()];
+        int[] taken = new int[samples.size()];
+        long total = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            Sample s = samples.get(i);
+            remaining[i] = finals ? s.finalSeen : s.boardSeen;
+            total += remaining[i];
+        }
+        List<Category> chosen = new ArrayList<Category>();
+        while (chosen.size() < n && total > 0) {
+            long pick = (long) (rnd.nextDouble() * total);
+            int i = 0;
+            while (pick >= remaining[i]) {
+                pick -= remaining[i];
+                i++;
+            }
+            List<Category> from = finals ? samples.get(i).finals
+                : samples.get(i).board;
+            chosen.add(from.get(taken[i]++));
+            remaining[i]--;
+            total--;
+        }
+        return chosen;
+    }
+
+    /**
+     * Samples one file, streaming its lines through the reservoirs.
+     */
+    private Sample sampleFile(String filename, Random rnd)
+            throws IOException {
+        InputStream is = loader.getResourceAsStream(filename);
+        if (is == null) throw new IOException("No such file: " + filename);
+        QuestionParser parser = new QuestionParser(
+            GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+        Sample sample = new Sample();
+        String[] catLines = new String[GameManager.MAX_CATEGORIES];
+        // The sampled category for each group, or null if not kept
+        Category[] kept = new Category[GameManager.MAX_CATEGORIES];
+        boolean[] seen = new boolean[GameManager.MAX_CATEGORIES];
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                int cat = parser.categoryIndex(line);
+                int quest = parser.questionIndex(line);
+                if (cat >= 0 && cat < catLines.length) {
+                    if (catLines[cat] == null) catLines[cat] = line;
+                } else if (quest >= 0 && quest < GameManager.MAX_QUESTS) {
+                    int group = quest / GameManager.ROWS;
+                    if (!seen[group]) {
+                        seen[group] = true;
+                        offer(sample, group, kept, rnd);
+                    }
+                    if (kept[group] != null) kept[group].lines.add(line);
+                }
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        for (int group = 0; group < kept.length; group++) {
+            if (kept[group] != null && catLines[group] != null) {
+                kept[group].lines.add(catLines[group]);
+            }
+        }
+        // Reservoirs keep their items in random order for the merge
+        Collections.shuffle(sample.board, rnd);
+        return sample;
+    }
+
+    /**
+     * Offers a newly seen category group to the reservoirs of a file.
+     */
+    private static void offer(Sample sample, int group, Category[] kept,
+            Random rnd) {
+        boolean isFinal = group == FINAL_GROUP;
+        List<Category> reservoir = isFinal ? sample.finals : sample.board;
+        int size = isFinal ? 1 : GameManager.COLS;
+        int seen = isFinal ? ++sample.finalSeen : ++sample.boardSeen;
+        Category cat = new Category();
+        cat.group = group;
+        if (reservoir.size() < size) {
+            reservoir.add(cat);
+            kept[group] = cat;
+        } else {
+            int slot = rnd.nextInt(seen);
+            if (slot < size) {
+                kept[reservoir.get(slot).group] = null;
+                reservoir.set(slot, cat);
+                kept[group] = cat;
+            }
+        }
+    }
+
+    /**
+     * Samples a range of files, splitting the range between threads.
+     */
+    private class SampleTask extends RecursiveTask<List<Sample>> {
+        private static final long serialVersionUID = 1L;
+        private final String[] filenames;
+        private final int from;
+        private final int to;
+        private final long seed;
+
+        SampleTask(String[] names, int start, int end, long rndSeed) {
+            filenames = names;
+            from = start;
+            to = end;
+            seed = rndSeed;
+        }
+
+        protected List<Sample> compute() {
+            if (to - from > 1) {
+                int mid = (from + to) / 2;
+                SampleTask left = new SampleTask(filenames, from, mid, seed);
+                SampleTask right = new SampleTask(filenames, mid, to, seed);
+                left.fork();
+                List<Sample> samples = new ArrayList<Sample>(right.compute());
+                samples.addAll(0, left.join());
+                return samples;
+            }
+            List<Sample> samples = new ArrayList<Sample>();
+            if (to > from) {
+                Random rnd = new Random(seed * 31 + from + 1);
+                try {
+                    samples.add(sampleFile(filenames[from], rnd));
+                } catch (IOException ioe) {
+                    throw new SampleException(ioe);
+                }
+            }
+            return samples;
+        }
+    }
+
+    /**
+     * Carries an I/O error out of a fork/join task.
+     */
+    private static class SampleException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        SampleException(IOException cause) {
+            super(cause);
+        }
+
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * The categories sampled from one file.
+     */
+    private static class Sample {
+        List<Category> board = new ArrayList<Category>();
+        List<Category> finals = new ArrayList<Category>();
+        int boardSeen;
+        int finalSeen;
+    }
+
+    /**
+     * A sampled category group and the lines that describe it.
+     */
+    private static class Category {
+        int group;
+        List<String> lines = new ArrayList<String>();
+    }
+}
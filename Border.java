@@ -0,0 +1,33 @@
+import java.awt.Graphics;
+import java.awt.Insets;
+
+/**
+ * Interface describing an object capable of rendering a border
+ * around the edges of a <code>GUIComponent</code>.
+ *
+ * See the <code>GUIWorld</code> class for examples of how to use this
+ * interface.
+ *
+ * You can write your own border class by implementing this interface.
+ *
+ * @author Ed Parrish
+ * @version 1.0  01/05/2011
+ * @see LineBorder
+ */
+interface Border {
+    /**
+     * Paints the border for the specified component.
+     *
+     * @param c The component for which this border is being painted.
+     * @param g The graphics context in which to paint.
+     */
+    void paintBorder(GUIComponent c, Graphics g);
+
+    /**
+     * Returns the insets of the border.
+     *
+     * @return A new <code>Insets</code> object with the required values
+     *         needed for drawing the border.
+     */
+    Insets getBorderInsets();
+}
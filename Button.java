@@ -5,6 +5,8 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * An implementation of a generic button for a game or application. The button
@@ -40,6 +42,9 @@ public class Button extends GUIComponent {
     private static final double ASCENT_MULT = .85;
     // Default color for the mouseover (hover) state
     private static final Color DEFAULT_HOVER = new Color(238, 238, 238);
+    // State images shared by buttons drawn with the same properties
+    private static final Map<StateKey, StateImages> SHARED =
+        new HashMap<StateKey, StateImages>();
 
     // Button image in normal (up) state
     private GreenfootImage up;
@@ -59,6 +64,10 @@ public class Button extends GUIComponent {
     private Color bgColorHover = DEFAULT_HOVER;
     // Tracks the state of the button during painting
     private boolean hoverState;
+    // The shared state images in use, or null when using supplied images
+    private StateImages shared;
+    // Set when the shared images were drawn before and need no painting
+    private boolean drawn;
 
     /**
      *  Creates a button with no set text or image.
@@ -226,12 +235,24 @@ public class Button extends GUIComponent {
         repaint();
     }
 
+    /**
+     * Releases the state images this button shares with other buttons. Call
+     * when the button is removed from the world for good, so the images can
+     * be freed once no button uses them. The button can still be shown, and
+     * shares images again if it is repainted.
+     */
+    public void dispose() {
+        release(shared);
+        shared = null;
+    }
+
     /**
      * Prepares the button's background images.
      *
      * If the images are supplied by the user, then copies those images onto
-     * the background. Otherwise, fills the background images with their
-     * respective colors.
+     * the background. Otherwise, uses the images shared by buttons with the
+     * same text, font, colors, size, border and focus, filling them with
+     * their respective colors if no button has drawn them yet.
      *
      * @param g The <code>Graphics</code> context in which to paint.
      */
@@ -247,6 +268,27 @@ public class Button extends GUIComponent {
             height = d.height;
         }
 
+        drawn = false;
+        if (bgUp == null && bgDown == null && bgHover == null) {
+            StateKey key = new StateKey(this, width, height);
+            if (shared == null || !shared.key.equals(key)) {
+                release(shared);
+                shared = acquire(key);
+            }
+            if (shared.up != null) {
+                up = shared.up;
+                down = shared.down;
+                hover = shared.hover;
+                drawn = true;
+                setImage(up);
+                return;
+            }
+            // First button with these properties, so draw new images
+            up = null;
+            down = null;
+            hover = null;
+        }
+
         // Prepare up image
         if (bgUp == null) {
             up = prepareImage(up, getBackground(), width, height);
@@ -296,9 +338,13 @@ public class Button extends GUIComponent {
      * @param g  the <code>Graphics</code> context in which to paint.
      */
     protected void paintBorder(Graphics g) {
-        super.paintBorder(up.getAwtImage().getGraphics());
-        super.paintBorder(down.getAwtImage().getGraphics());
-        super.paintBorder(hover.getAwtImage().getGraphics());
+        if (drawn) return;
+        GreenfootImage[] images = {up, down, hover};
+        for (int i = 0; i < images.length; i++) {
+            Graphics ig = images[i].getAwtImage().getGraphics();
+            super.paintBorder(ig);
+            ig.dispose();
+        }
     }
 
     /**
@@ -307,6 +353,11 @@ public class Button extends GUIComponent {
      * @param g The <code>Graphics</code> context in which to paint.
      */
     public void paintText(Graphics g) {
+        if (drawn) {
+            if (hoverState) setImage(hover);
+            return;
+        }
+        if (shared != null) shared.share(up, down, hover);
         String btnText = getText();
         if (btnText == null || btnText.length() == 0) return;
         String[] lines = splitLines(btnText, g);
@@ -342,15 +393,14 @@ public class Button extends GUIComponent {
      * @param offset The offset to the baseline (used for pressed effect).
      */
     private void printText(GreenfootImage img, String[] lines, int offset) {
-        Graphics g = img.getAwtImage().getGraphics();
-        if (getFont() != null) g.setFont(getFont());
-        FontMetrics fm = g.getFontMetrics();
+        Font font = getFont();
+        FontMetrics fm = TextMetrics.getFontMetrics(font);
         int lineHeight = (int) (fm.getHeight() * ASCENT_MULT);
         int height = lineHeight * lines.length;
         int width = 0;
         int y = lineHeight + (img.getHeight() - height - fm.getDescent()) / 2;
         for (int i = 0; i < lines.length; i++) {
-            int lineWidth = fm.stringWidth(lines[i]);
+            int lineWidth = TextMetrics.stringWidth(font, lines[i]);
             width = Math.max(width, lineWidth);
             int x = (img.getWidth() - lineWidth) / 2;
             img.drawString(lines[i], x + offset, y + offset);
@@ -363,4 +413,110 @@ public class Button extends GUIComponent {
             img.drawRect(x + offset, y + offset, width + 1, height);
         }
     }
+
+    /**
+     * Returns the shared state images for the specified properties, counting
+     * one more button using them.
+     *
+     * @param key The properties the images are drawn with.
+     * @return The shared images, which have no images yet if new.
+     */
+    private static synchronized StateImages acquire(StateKey key) {
+        StateImages images = SHARED.get(key);
+        if (images == null) {
+            images = new StateImages(key);
+            SHARED.put(key, images);
+        }
+        images.count++;
+        return images;
+    }
+
+    /**
+     * Counts one less button using some shared state images, and forgets
+     * the images when no button uses them.
+     *
+     * @param images The shared images, or null to do nothing.
+     */
+    private static synchronized void release(StateImages images) {
+        if (images == null) return;
+        images.count--;
+        if (images.count <= 0) SHARED.remove(images.key);
+    }
+
+    /**
+     * The up, down and hover images shared by buttons drawn with the same
+     * properties, and the number of buttons using them.
+     */
+    private static class StateImages {
+        private final StateKey key;
+        private GreenfootImage up;
+        private GreenfootImage down;
+        private GreenfootImage hover;
+        private int count;
+
+        StateImages(StateKey k) {
+            key = k;
+        }
+
+        /**
+         * Sets the images once drawn. The images must not be drawn on again.
+         */
+        synchronized void share(GreenfootImage upImg, GreenfootImage downImg,
+                GreenfootImage hoverImg) {
+            up = upImg;
+            down = downImg;
+            hover = hoverImg;
+        }
+    }
+
+    /**
+     * The properties that the state images of a button are drawn with.
+     */
+    private static class StateKey {
+        private final String text;
+        private final Font font;
+        private final Color foreground;
+        private final Color background;
+        private final Color backgroundDown;
+        private final Color backgroundHover;
+        private final Border border;
+        private final int width;
+        private final int height;
+        private final boolean focus;
+
+        StateKey(Button b, int w, int h) {
+            text = b.getText();
+            font = b.getFont();
+            foreground = b.getForeground();
+            background = b.getBackground();
+            backgroundDown = b.bgColorDown;
+            backgroundHover = b.bgColorHover;
+            border = b.getBorder();
+            width = w;
+            height = h;
+            focus = b.isFocusOwner();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey)) return false;
+            StateKey k = (StateKey) o;
+            return width == k.width && height == k.height && focus == k.focus
+                && text.equals(k.text) && same(font, k.font)
+                && same(foreground, k.foreground)
+                && same(background, k.background)
+                && same(backgroundDown, k.backgroundDown)
+                && same(backgroundHover, k.backgroundHover)
+                && same(border, k.border);
+        }
+
+        public int hashCode() {
+            return (text.hashCode() * 31 + width) * 31 + height
+                + (font == null ? 0 : font.hashCode())
+                + (background == null ? 0 : background.hashCode());
+        }
+
+        private static boolean same(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
 }
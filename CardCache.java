@@ -0,0 +1,214 @@
+import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Draws the question and response cards of a round in the background and
+ * keeps them for each question.
+ *
+ * When a round is loaded, a background thread draws the prompt card of
+ * every question, so showing a question only sets the cached image. A card
+ * that is not drawn yet, or that is out of date because the display of
+ * answers changed, is drawn when asked for. Question cards are drawn from
+ * the parsed questions, not the question actors, so the renderer never
+ * touches an actor. They are held weakly by parsed question, so they are
+ * freed with the rounds that are no longer used.
+ *
+ * Only one response is shown at a time, so response cards are not drawn
+ * for the whole round. When a question is shown, its three response cards
+ * are drawn in the background while the player answers, replacing those of
+ * the previous question. A response card that is not drawn yet is drawn
+ * when asked for instead of waiting for the renderer.
+ *
+ * @version 1.0
+ */
+public class CardCache {
+    private final int width;
+    private final int height;
+    private final Map<QuestionParser.Entry, Card> questionCards =
+        new WeakHashMap<QuestionParser.Entry, Card>();
+    // The response cards of the question shown, by response type
+    private Question responseQuestion;
+    private int responseValue;
+    private Future<Card[]> responseCards;
+    private final ExecutorService executor =
+        Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Card renderer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    private Future<?> pending;
+
+    /**
+     * Constructs a cache for cards of the specified size.
+     *
+     * @param cardWidth The width of a card, usually the world width.
+     * @param cardHeight The height of a card, usually the world height.
+     */
+    public CardCache(int cardWidth, int cardHeight) {
+        width = cardWidth;
+        height = cardHeight;
+    }
+
+    /**
+     * Starts drawing the question cards of a round in the background,
+     * abandoning any round still being drawn.
+     *
+     * @param round The round whose questions will be shown.
+     * @param withAnswers Set <code>true</code> if the answers will be
+     *        displayed with the questions; otherwise <code>false</code>.
+     */
+    public synchronized void prerender(final Round round,
+            final boolean withAnswers) {
+        if (pending != null) pending.cancel(true);
+        questionCards.clear();
+        pending = executor.submit(new Runnable() {
+            public void run() {
+                for (int i = 0; i < round.getMaxQuestions(); i++) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                    QuestionParser.Entry e = round.getEntry(i);
+                    if (e == null) continue;
+                    getCard(e, withAnswers && e.answers.size() != 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the prompt card for a question, drawing it if needed.
+     *
+     * @param q The question.
+     * @param withAnswers Set <code>true</code> if the answers are displayed
+     *        with the question; otherwise <code>false</code>.
+     * @return The card.
+     */
+    public Card getQuestionCard(Question q, boolean withAnswers) {
+        return getCard(q.getEntry(), withAnswers);
+    }
+
+    /**
+     * Returns the prompt card for a parsed question, drawing it if needed.
+     * Copies of a question share the parsed question, and so the card.
+     */
+    private Card getCard(QuestionParser.Entry e, boolean withAnswers) {
+        Card card;
+        synchronized (this) {
+            card = questionCards.get(e);
+        }
+        if (card == null || card.withAnswers != withAnswers) {
+            card = Question.drawCard(e, width, height, withAnswers);
+            synchronized (this) {
+                questionCards.put(e, card);
+            }
+        }
+        return card;
+    }
+
+    /**
+     * Starts drawing the response cards of a question in the background,
+     * abandoning those of the previous question. Call from the act thread
+     * when the question is shown.
+     *
+     * @param q The question being shown.
+     */
+    public synchronized void prerenderResponses(Question q) {
+        if (responseCards != null) responseCards.cancel(true);
+        // Read the question here, so the renderer never touches an actor
+        final String answer = q.getFirstCorrectAnswerText();
+        final String explanation = q.getExplanation();
+        final int amount = q.getValue();
+        responseQuestion = q;
+        responseValue = amount;
+        responseCards = executor.submit(new Callable<Card[]>() {
+            public Card[] call() {
+                Response.Type[] types = Response.Type.values();
+                Card[] drawn = new Card[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    drawn[i] = Response.drawCard(answer, explanation, amount,
+                        types[i], new GreenfootImage(width, height));
+                }
+                return drawn;
+            }
+        });
+    }
+
+    /**
+     * Returns the response card for a question, drawing it now if the
+     * renderer has not finished it. Call from the act thread.
+     *
+     * @param q The question.
+     * @param type The type of the response.
+     * @return The card.
+     */
+    public Card getResponseCard(Question q, Response.Type type) {
+        Future<Card[]> drawn = null;
+        synchronized (this) {
+            if (q == responseQuestion && q.getValue() == responseValue) {
+                drawn = responseCards;
+            }
+        }
+        if (drawn != null && drawn.isDone() && !drawn.isCancelled()) {
+            try {
+                return drawn.get()[type.ordinal()];
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ee) {
+                System.out.println("WARNING: cannot draw response: "
+                    + ee.getCause());
+            }
+        }
+        return Response.drawCard(q.getFirstCorrectAnswerText(),
+            q.getExplanation(), q.getValue(), type,
+            new GreenfootImage(width, height));
+    }
+
+    /**
+     * A drawn card and what it was drawn for.
+     */
+    public static class Card {
+        private final GreenfootImage image;
+        private final int bottom;
+        private final boolean withAnswers;
+
+        /**
+         * Constructs a card.
+         *
+         * @param img The image of the card.
+         * @param textBottom The y location below the text on the card.
+         * @param answers Whether the card was drawn for displayed answers.
+         */
+        public Card(GreenfootImage img, int textBottom, boolean answers) {
+            image = img;
+            bottom = textBottom;
+            withAnswers = answers;
+        }
+
+        /**
+         * Returns the image of the card.
+         *
+         * @return The card image.
+         */
+        public GreenfootImage getImage() {
+            return image;
+        }
+
+        /**
+         * Returns the y location below the text on the card, where
+         * components may be placed.
+         *
+         * @return The y location below the text.
+         */
+        public int getBottom() {
+            return bottom;
+        }
+    }
+}
@@ -2,13 +2,17 @@ import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
-import java.awt.Graphics;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * Displays a count-down timer during questions.
  *
+ * The timer counts down as it acts, so the digits change and the timeout
+ * happens in the same thread as the rest of the game. Every digit is due a
+ * fixed time after the timer started, measured with
+ * <code>System.nanoTime()</code>, so late frames do not add up over the
+ * count down. The lateness of each digit, which is at most about a frame,
+ * is measured and reported when it is large.
+ *
  * @author Ed Parrish
  * @version 1.0 12/01/10
  */
@@ -16,13 +20,16 @@ public class CountDownTimer extends Actor {
     private static final double ASCENT_MULT = .80;
     private static final int WIDTH = 40;
     private static final int HEIGHT = 50;
-    private static final int MS_SEC = 1000;
+    private static final long NANOS_SEC = 1000000000L;
     private static final int DISPLAY_TIME = 5;
+    // Lateness of a digit worth a warning, in nanoseconds
+    private static final long DRIFT_WARNING = 250000000L;
 
     private long delay;
-    private Timer timer;
+    private long startTime;
     private int count;
     private boolean running;
+    private long maxDrift;
     private final Color textColor = Color.WHITE;
     private final Font font = new Font("SansSerif", Font.BOLD, 48);
 
@@ -42,16 +49,16 @@ public class CountDownTimer extends Actor {
      * @param seconds The duration in seconds.
      */
     public void setDuration(int seconds) {
-        delay = (seconds - DISPLAY_TIME) * MS_SEC;
+        delay = (seconds - DISPLAY_TIME) * NANOS_SEC;
     }
 
     /**
-     * Starts a new timer task.
+     * Starts counting down. The timer must be in the world to count.
      */
     public void start() {
-        timer = new Timer(true);
-        timer.scheduleAtFixedRate(new Task(), delay, MS_SEC);
+        startTime = System.nanoTime();
         count = DISPLAY_TIME;
+        maxDrift = 0;
         running = true;
     }
 
@@ -70,42 +77,63 @@ public class CountDownTimer extends Actor {
      */
     public void stop() {
         running = false;
-        if (timer != null) timer.cancel();
         getImage().clear();
     }
 
     /**
-     * The scheduled task.
+     * Returns how late the latest digit or timeout of the last count down
+     * was, compared with when it was due.
      *
-     * @author Ed Parrish
-     * @version 1.0 12/01/10
+     * @return The largest lateness in milliseconds.
+     */
+    public double getMaxDrift() {
+        return maxDrift / 1e6;
+    }
+
+    /**
+     * Displays the count-down digits that are due, and times out when the
+     * count down ends.
      */
-    private class Task extends TimerTask {
-        /**
-         * Displays the count-down digits.
-         */
-        public void run() {
-            GreenfootImage img = getImage();
-            img.clear();
-            if (count <= 0) {
-                stop();
-                ((GameManager) getWorld()).timeout();
-            } else {
-                Graphics g = getImage().getAwtImage().getGraphics();
-                g.setFont(font);
-                FontMetrics fm = g.getFontMetrics();
-                img.setColor(Color.WHITE);
-                img.fill();
-                img.setColor(Color.BLACK);
-                img.setFont(font);
-                String text = "" + count;
-                int x = img.getWidth() / 2 - fm.stringWidth(text) / 2;
-                int y = img.getHeight() / 2 + (int) (fm.getAscent()
-                    * ASCENT_MULT) / 2;
-                img.drawString(text, x, y);
+    public void act() {
+        if (!running) return;
+        long elapsed = System.nanoTime() - startTime;
+        // The time the next digit or the timeout is due
+        long due = delay + (DISPLAY_TIME - count) * NANOS_SEC;
+        if (elapsed < due) return;
+        // Skip digits that were missed, as when the game was paused
+        int ticks = (int) ((elapsed - due) / NANOS_SEC);
+        count = Math.max(0, count - ticks);
+        due += ticks * NANOS_SEC;
+        maxDrift = Math.max(maxDrift, elapsed - due);
+        if (count <= 0) {
+            stop();
+            if (maxDrift > DRIFT_WARNING) {
+                System.out.println("WARNING: count down was up to "
+                    + Math.round(getMaxDrift()) + " ms late");
             }
-            setImage(img);
+            ((GameManager) getWorld()).timeout();
+        } else {
+            drawCount();
             count--;
         }
     }
+
+    /**
+     * Draws the current count.
+     */
+    private void drawCount() {
+        GreenfootImage img = getImage();
+        img.clear();
+        FontMetrics fm = TextMetrics.getFontMetrics(font);
+        img.setColor(Color.WHITE);
+        img.fill();
+        img.setColor(Color.BLACK);
+        img.setFont(font);
+        String text = "" + count;
+        int x = img.getWidth() / 2 - TextMetrics.stringWidth(font, text) / 2;
+        int y = img.getHeight() / 2 + (int) (fm.getAscent()
+            * ASCENT_MULT) / 2;
+        img.drawString(text, x, y);
+        setImage(img);
+    }
 }
@@ -0,0 +1,123 @@
+import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Arrays;
+
+/**
+ * Compares the time to gray out component images one pixel at a time, as
+ * <code>GUIComponent</code> used to, with the single pass over the pixel
+ * data that it uses now.
+ *
+ * Both versions run on the same images, a button from the game board and
+ * an image the size of the world, after a few warm-up runs so the methods
+ * are compiled. The benchmark reports the median and best time of each and
+ * checks that both produce the same pixels.
+ *
+ * To run the benchmark from the command line:
+ * <pre>java DisabledImageBenchmark [runs]</pre>
+ *
+ * @version 1.0
+ */
+public class DisabledImageBenchmark {
+    private static final int WARMUP_RUNS = 20;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of measured runs, optional.
+     */
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        measure("Button", makeImage(85, 60), runs);
+        measure("World", makeImage(600, 454), runs);
+    }
+
+    /**
+     * Measures both versions on copies of an image and prints the results.
+     */
+    private static void measure(String name, GreenfootImage src, int runs) {
+        GreenfootImage expected = new GreenfootImage(src);
+        makeDisabledImage(expected);
+        GreenfootImage actual = GUIComponent.createDisabledImage(src);
+        if (!samePixels(expected, actual)) {
+            System.out.println("ERROR: " + name + " images differ");
+        }
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            makeDisabledImage(new GreenfootImage(src));
+            GUIComponent.createDisabledImage(src);
+        }
+        double[] perPixel = new double[runs];
+        double[] raster = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            // Both versions pay for one copy of the image
+            GreenfootImage copy = new GreenfootImage(src);
+            long start = System.nanoTime();
+            makeDisabledImage(copy);
+            perPixel[i] = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            GUIComponent.createDisabledImage(src);
+            raster[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(perPixel);
+        Arrays.sort(raster);
+        System.out.println(String.format("%s (%dx%d):", name, src.getWidth(),
+            src.getHeight()));
+        System.out.println(String.format("  Per pixel: median %.3f ms, "
+            + "best %.3f ms", perPixel[runs / 2], perPixel[0]));
+        System.out.println(String.format("  Raster:    median %.3f ms, "
+            + "best %.3f ms (%.1fx)", raster[runs / 2], raster[0],
+            perPixel[runs / 2] / raster[runs / 2]));
+    }
+
+    /**
+     * Returns an image drawn like a board button, with a transparent
+     * border so both opaque and transparent pixels are converted.
+     */
+    private static GreenfootImage makeImage(int width, int height) {
+        GreenfootImage img = new GreenfootImage(width, height);
+        img.setColor(new Color(0, 0, 205));
+        img.fillRect(2, 2, width - 4, height - 4);
+        img.setColor(Color.YELLOW);
+        img.setFont(new Font("SansSerif", Font.BOLD, 24));
+        img.drawString("$400", width / 4, height / 2);
+        return img;
+    }
+
+    private static boolean samePixels(GreenfootImage a, GreenfootImage b) {
+        for (int x = 0; x < a.getWidth(); x++) {
+            for (int y = 0; y < a.getHeight(); y++) {
+                if (!a.getColorAt(x, y).equals(b.getColorAt(x, y))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The previous version, which converts an image in place one pixel at
+     * a time.
+     */
+    private static void makeDisabledImage(GreenfootImage img) {
+        final float RED_LUMINANCE = 0.229f;
+        final float GREEN_LUMINANCE = 0.587f;
+        final float BLUE_LUMINANCE = 0.114f;
+        final int RGB_MIN = 148;
+        final int RGBA_MAX = 255;
+        for (int x = 0; x < img.getWidth(); x++) {
+            for (int y = 0; y < img.getHeight(); y++) {
+                Color c = img.getColorAt(x, y);
+                if (c.getAlpha() >= RGBA_MAX) {
+                    float red = c.getRed() * RED_LUMINANCE;
+                    float green = c.getGreen() * GREEN_LUMINANCE;
+                    float blue = c.getBlue() * BLUE_LUMINANCE;
+                    int luminance = (int) (red + green + blue);
+                    if (luminance < RGB_MIN) luminance = RGB_MIN;
+                    Color color = new Color(luminance, luminance, luminance);
+                    img.setColorAt(x, y, color);
+                }
+            }
+        }
+    }
+}
@@ -2,15 +2,15 @@ import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.Set;
 
 /**
  * A <em>component</em> is an object having a graphical representation
@@ -44,12 +44,26 @@ public abstract class GUIComponent extends Actor {
     private Font font = DEFAULT_FONT;
     // The default border for a component
     private Border border = new LineBorder();
+    // The image shown before disabling and its grayed version, kept so that
+    // disabling again does not filter the image again
+    private GreenfootImage enabledImage;
+    private GreenfootImage disabledImage;
+    // Set when the component may have been painted since it was grayed
+    private boolean disabledStale = true;
+    // Set when properties changed since the component was last painted
+    private boolean dirty;
     private List<ActionListener> listeners = new ArrayList<ActionListener>();
 
     /**
      * The component that will receive all keystrokes.
      */
-    private static GUIComponent focusOwner;
+    private static volatile GUIComponent focusOwner;
+
+    /**
+     * The components waiting to be painted, in the order they changed.
+     */
+    private static final Set<GUIComponent> dirtyComponents =
+        new LinkedHashSet<GUIComponent>();
 
     /**
      * Indicates whether this component can be focused.
@@ -157,40 +171,76 @@ public abstract class GUIComponent extends Actor {
      * @param b Set true to enable the component, otherwise false.
      */
     public void setEnabled(boolean b) {
+        // Gray or restore the image as it is after pending changes
+        validate();
         enabled = b;
         if (enabled) {
-            repaint();
+            if (enabledImage != null && !disabledStale) {
+                // Nothing changed while disabled, so restore the image
+                setImage(enabledImage);
+            } else {
+                repaint();
+                validate();
+            }
         } else if (!enabled) {
-            makeDisabledImage(getImage());
+            showDisabledImage();
         }
     }
 
     /**
-     * Converts an image to a "disabled" version.
+     * Shows the "disabled" version of the current image, graying the image
+     * only if it changed since it was last grayed.
+     */
+    private void showDisabledImage() {
+        GreenfootImage img = getImage();
+        if (img == null || img == disabledImage) return;
+        if (img != enabledImage || disabledStale) {
+            enabledImage = img;
+            disabledImage = createDisabledImage(img);
+            disabledStale = false;
+        }
+        setImage(disabledImage);
+    }
+
+    /**
+     * Creates a "disabled" version of an image. Opaque pixels are converted
+     * to light shades of gray in a single pass over the pixel data.
      *
-     * @param img The image to "disable".
+     * @param img The image to "disable", which is not changed.
+     * @return The grayed copy of the image.
      */
-    private static void makeDisabledImage(GreenfootImage img) {
-        if (img == null) return;
+    static GreenfootImage createDisabledImage(GreenfootImage img) {
         final float RED_LUMINANCE = 0.229f;
         final float GREEN_LUMINANCE = 0.587f;
         final float BLUE_LUMINANCE = 0.114f;
         final int RGB_MIN = 148;
-        final int RGBA_MAX = 255;
-        for (int x = 0; x < img.getWidth(); x++) {
-            for (int y = 0; y < img.getHeight(); y++) {
-                Color c = img.getColorAt(x, y);
-                if (c.getAlpha() >= RGBA_MAX) {
-                    float red = c.getRed() * RED_LUMINANCE;
-                    float green = c.getGreen() * GREEN_LUMINANCE;
-                    float blue = c.getBlue() * BLUE_LUMINANCE;
-                    int luminance = (int) (red + green + blue);
-                    if (luminance < RGB_MIN) luminance = RGB_MIN;
-                    Color color = new Color(luminance, luminance, luminance);
-                    img.setColorAt(x, y, color);
-                }
+        int width = img.getWidth();
+        int height = img.getHeight();
+        GreenfootImage copy = new GreenfootImage(img);
+        BufferedImage awt = copy.getAwtImage();
+        int[] pixels;
+        boolean direct = awt.getType() == BufferedImage.TYPE_INT_ARGB
+            && awt.getRaster().getDataBuffer() instanceof DataBufferInt;
+        if (direct) {
+            pixels = ((DataBufferInt) awt.getRaster().getDataBuffer())
+                .getData();
+        } else {
+            pixels = awt.getRGB(0, 0, width, height, null, 0, width);
+        }
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            if ((argb >>> 24) == 0xFF) {
+                float red = ((argb >> 16) & 0xFF) * RED_LUMINANCE;
+                float green = ((argb >> 8) & 0xFF) * GREEN_LUMINANCE;
+                float blue = (argb & 0xFF) * BLUE_LUMINANCE;
+                int luminance = (int) (red + green + blue);
+                if (luminance < RGB_MIN) luminance = RGB_MIN;
+                pixels[i] = 0xFF000000 | (luminance << 16)
+                    | (luminance << 8) | luminance;
             }
         }
+        if (!direct) awt.setRGB(0, 0, width, height, pixels, 0, width);
+        return copy;
     }
 
     /**
@@ -215,7 +265,7 @@ public abstract class GUIComponent extends Actor {
         String oldText = text;
         text = newText;
         if (text == null) text = "";
-        if (text != oldText) repaint();
+        if (!text.equals(oldText)) repaint();
     }
 
     /**
@@ -236,7 +286,7 @@ public abstract class GUIComponent extends Actor {
         Font oldFont = font;
         font = newFont;
         if (newFont != null) getImage().setFont(newFont);
-        if (font != oldFont) repaint();
+        if (!same(font, oldFont)) repaint();
     }
 
     /**
@@ -261,7 +311,7 @@ public abstract class GUIComponent extends Actor {
     public void setSize(Dimension d) {
         Dimension oldSize = size;
         size = new Dimension(d); // defensive copy
-        if (size != oldSize) repaint();
+        if (!size.equals(oldSize)) repaint();
     }
 
     /**
@@ -273,6 +323,7 @@ public abstract class GUIComponent extends Actor {
         if (size != null) {
             return size.height;
         } else {
+            validate(); // the image is sized to the text
             return getImage().getHeight();
         }
     }
@@ -286,6 +337,7 @@ public abstract class GUIComponent extends Actor {
         if (size != null) {
             return size.width;
         } else {
+            validate(); // the image is sized to the text
             return getImage().getWidth();
         }
     }
@@ -312,7 +364,7 @@ public abstract class GUIComponent extends Actor {
     public void setForeground(Color fg) {
         Color oldColor = foreground;
         foreground = fg;
-        if (foreground != oldColor) repaint();
+        if (!same(foreground, oldColor)) repaint();
     }
 
     /**
@@ -332,7 +384,7 @@ public abstract class GUIComponent extends Actor {
     public void setBackground(Color bg) {
         Color oldColor = background;
         background = bg;
-        if (background != oldColor) repaint();
+        if (!same(background, oldColor)) repaint();
     }
 
     /**
@@ -354,7 +406,14 @@ public abstract class GUIComponent extends Actor {
     public void setBorder(Border newBorder) {
         Border oldBorder = border;
         border = newBorder;
-        if (border != oldBorder) repaint();
+        if (!same(border, oldBorder)) repaint();
+    }
+
+    /**
+     * Tests whether two property values are equal, either may be null.
+     */
+    private static boolean same(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
     }
 
     /**
@@ -456,6 +515,15 @@ public abstract class GUIComponent extends Actor {
         return focusOwner == this;
     }
 
+    /**
+     * Returns the component that receives all keystrokes.
+     *
+     * @return The focus owner, or <code>null</code> if there is none.
+     */
+    static GUIComponent getFocusOwner() {
+        return focusOwner;
+    }
+
     // ActionListener callback management methods
 
     /**
@@ -499,20 +567,66 @@ public abstract class GUIComponent extends Actor {
     public void addedToWorld(World w) {
         visible = true;
         repaint();
-        if (!enabled) makeDisabledImage(getImage());
+        validate();
+        if (!enabled) showDisabledImage();
     }
 
     /**
-     * Paints the component image, including the background, border and text.
+     * Marks the component image to be painted again, including the
+     * background, border and text.
+     *
+     * Painting waits until a <code>Validator</code> acts at the end of the
+     * frame, so that setting several properties in a row paints the
+     * component only once. Call <code>validate()</code> to paint any changes
+     * right away.
      */
     public void repaint() {
+        disabledStale = true;
+        if (visible && enabled && !dirty) {
+            dirty = true;
+            dirtyComponents.add(this);
+        }
+    }
+
+    /**
+     * Paints the component now if it changed since it was last painted.
+     */
+    public void validate() {
+        if (!dirty) return;
+        dirty = false;
+        dirtyComponents.remove(this);
         if (visible && enabled) {
             Graphics g = getGraphics();
             paintComponent(g);
+            g.dispose();
             // Refresh the graphics context in case the image was changed
             g = getGraphics();
             paintBorder(g);
             paintText(g);  // paintChildren() in Swing
+            g.dispose();
+        }
+    }
+
+    /**
+     * Determines whether this component is painted as it is now.
+     *
+     * @return <code>true</code> if no changes are waiting to be painted;
+     *         <code>false</code> otherwise.
+     */
+    public boolean isValid() {
+        return !dirty;
+    }
+
+    /**
+     * Paints every component that changed since it was last painted. A
+     * <code>Validator</code> calls this once per frame.
+     */
+    public static void validateAll() {
+        if (dirtyComponents.isEmpty()) return;
+        GUIComponent[] pending = dirtyComponents.toArray(
+            new GUIComponent[dirtyComponents.size()]);
+        for (int i = 0; i < pending.length; i++) {
+            pending[i].validate();
         }
     }
 
@@ -566,16 +680,10 @@ public abstract class GUIComponent extends Actor {
      * @author http://joust.kano.net/weblog/archives/000060.html
      * @author Ed Parrish (changed regex, added max, added newline split,
      * removed extra blank line at end)
+     * @see LineBreaker
      */
     public static String[] wordWrap(String str, int max) {
-        if (max <= 0) return new String[0];
-        Pattern wrapRE =
-            Pattern.compile(".{0," + (max - 1) + "}(?:\\S(?:-| |\n|$)|\n|$)");
-        List<String> list = new LinkedList<String>();
-        Matcher m = wrapRE.matcher(str);
-        while (m.find()) list.add(m.group());
-        if (list.get(list.size() - 1).equals("")) list.remove(list.size() - 1);
-        return (String[]) list.toArray(new String[list.size()]);
+        return LineBreaker.wrap(str, max);
     }
 
     /**
@@ -589,16 +697,15 @@ public abstract class GUIComponent extends Actor {
     public Dimension getTextDimension(String str, Graphics g) {
         // Calculate image size based on text width & height
         if (str == null) str = "";
-        FontMetrics fm = g.getFontMetrics();
         // Allow multiple lines separated by newline characters ('\n')
         String[] lines = str.split("\n");
         int width = 1;
         int height = 0;
-        Rectangle2D[] bounds = new Rectangle2D[lines.length];
         for (int i = 0; i < lines.length; i++) {
-            bounds[i] = g.getFontMetrics().getStringBounds(lines[i], g);
-            width = Math.max(width, (int) Math.ceil(bounds[i].getWidth()));
-            height += Math.ceil(bounds[i].getHeight());
+            Rectangle2D bounds = TextMetrics.getStringBounds(g.getFont(),
+                lines[i]);
+            width = Math.max(width, (int) Math.ceil(bounds.getWidth()));
+            height += Math.ceil(bounds.getHeight());
         }
         Insets insets = getInsets();
         if (insets != null) {
@@ -613,31 +720,54 @@ public abstract class GUIComponent extends Actor {
      * Splits the text into multiple lines in the specified
      * <code>Graphics</code> context.
      *
-     * If the component size is fixed, then the text is word wrapped to fit.
-     * Otherwise, text is split on '\n' characters.
+     * If the component size is fixed, then the text is word wrapped to fit
+     * the width inside the insets. Otherwise, text is split on '\n'
+     * characters.
      *
      * @param str The text to display on this component.
      * @param g The <code>Graphics</code> context in which to paint.
      * @return the split lines of text.
      */
     public String[] splitLines(String str, Graphics g) {
-        FontMetrics fm = g.getFontMetrics();
         if (str == null) str = "";
         String[] lines = null;
         if (isFixedSize()) {
-            int pixelsWide = fm.stringWidth(str);
+            int width = getWidth();
             Insets insets = getInsets();
             if (insets != null) {
-                pixelsWide += (insets.left + insets.right);
+                width -= (insets.left + insets.right);
             }
-            int maxChars = Math.round(getWidth()
-                / ((float) pixelsWide / str.length()));
-            lines = wordWrap(str, maxChars);
+            lines = LineBreaker.wrap(str, g.getFont(), width);
         } else {
             lines = str.split("\n");
         }
         return lines;
     }
+
+    /**
+     * An invisible actor that paints the components changed during a frame.
+     *
+     * Greenfoot runs the world's <code>act()</code> before the actors', so
+     * painting from there would show changes made by actors one frame late.
+     * Add one validator to the world and make it act after every other
+     * actor with <code>setActOrder(Actor.class, Validator.class)</code>.
+     */
+    public static class Validator extends Actor {
+        /**
+         * Constructs a validator with an empty image.
+         */
+        public Validator() {
+            setImage(new GreenfootImage(1, 1));
+        }
+
+        /**
+         * Paints the components changed by the world and the other actors
+         * this frame.
+         */
+        public void act() {
+            validateAll();
+        }
+    }
 }
 
 /**
@@ -669,105 +799,3 @@ interface ActionListener {
      */
     public void actionPerformed(GUIComponent c);
 }
-
-/**
- * Interface describing an object capable of rendering a border
- * around the edges of a <code>GUIComponent</code>.
- *
- * See the <code>GUIWorld</code> class for examples of how to use this
- * interface.
- *
- * You can write your own border class by implementing this interface.
- *
- * This interface is included in the <code>GUIComponent</code> class to make it
- * easier to use the components by reducing the number of files to copy into a
- * project.
- *
- * @author Ed Parrish
- * @version 1.0  01/05/2011
- * @see LineBorder
- */
-interface Border {
-    /**
-     * Paints the border for the specified component.
-     *
-     * @param c The component for which this border is being painted.
-     * @param g The graphics context in which to paint.
-     */
-    void paintBorder(GUIComponent c, Graphics g);
-
-    /**
-     * Returns the insets of the border.
-     *
-     * @return A new <code>Insets</code> object with the required values
-     *         needed for drawing the border.
-     */
-    Insets getBorderInsets();
-}
-
-/**
- * A class which implements a simple line border in the color black.
- *
- * This interface is included in the <code>GUIComponent</code> class to make it
- * easier to use the components by reducing the number of files to copy into a
- * project.
- *
- * See the <code>GUIWorld</code> class for examples of how to use this
- * interface.
- *
- * @author Ed Parrish
- * @version 1.0  01/05/2011
- */
-class LineBorder implements Border {
-    // Padding to leave small horizontal gap between box edge and cursor
-    private static final int X_PAD = 3;
-    private Color color;
-    private int thickness;
-
-    /**
-     * Creates a simple line border in the color black and a thickness of one.
-     */
-    public LineBorder() {
-        this(Color.BLACK, 1);
-    }
-
-    /**
-     * Creates a simple line border with the specified color and thickness.
-     *
-     * @param lineColor The color of the border.
-     * @param lineThickness The thickness of the border.
-     */
-    public LineBorder(Color lineColor, int lineThickness) {
-        color = lineColor;
-        thickness = lineThickness;
-    }
-
-    /**
-     * Paints the border for the specified component.
-     *
-     * @param c The component for which this border is being painted.
-     * @param g The graphics context in which to paint.
-     */
-    public void paintBorder(GUIComponent c, Graphics g) {
-        Color oldColor = g.getColor();
-        g.setColor(color);
-        for (int i = 0; i < thickness; i++)  {
-            g.drawRect(i, i, c.getWidth() - i - i - 1,
-                c.getHeight() - i - i - 1);
-        }
-        g.setColor(oldColor);
-    }
-
-    /**
-     * Returns a new <code>Insets</code> object where the <code>top</code>,
-     * <code>left</code>, <code>bottom</code>, and <code>right</code>
-     * fields return the values needed for drawing the border.
-     *
-     * @return A new <code>Insets</code> object with the required values
-     *         needed for drawing the border.
-     */
-    public Insets getBorderInsets()       {
-        return new Insets(thickness, thickness + X_PAD, thickness,
-            thickness + X_PAD);
-    }
-}
@@ -3,14 +3,18 @@ import java.awt.Font;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.io.*;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Scanner;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
 import javax.swing.*;
 
 
@@ -24,15 +28,42 @@ public class GameManager extends World implements ActionListener {
 
     private static final Font CAT_FONT = new Font("SansSerif", Font.BOLD, 12);
     private static final Font SCORE_FONT = new Font("SansSerif", Font.BOLD, 14);
-    private static final int MAX_CATEGORIES = 7;
-    private static final int MAX_QUESTS = 31;
+    public static final int MAX_CATEGORIES = 7;
+    public static final int MAX_QUESTS = 31;
     private static final int DEFAULT_TIMER = 15;
-    private static final int FILL_PAUSE = 90;
+    // Time between revealing buttons when filling the board
+    private static final long FILL_PAUSE_NANOS = 90 * 1000000L;
+    private static final int CACHED_ROUNDS = 8;
+    // Time in each frame for work posted by background threads
+    private static final long ACT_BUDGET_MILLIS = 4;
+    private static final long CACHE_BYTES = 4L * 1024 * 1024;
+    // Joins question files for a generated board, as in java.txt+cpp.txt
+    private static final String BOARD_SEPARATOR = "+";
+    // Separates a bundle from a file inside it, as in java.bundle!java.txt
+    private static final String BUNDLE_SEPARATOR = "!";
+    // Searched for question files that are not shipped uncompressed
+    public static final String DEFAULT_BUNDLE = "questions.bundle";
+    // Parsed rounds shared by every game, so replays skip parsing
+    private static final RoundCache ROUND_CACHE =
+        new RoundCache(CACHED_ROUNDS, CACHE_BYTES);
+    // Updates cached rounds when their question files are edited
+    private static final QuestionWatcher WATCHER =
+        new QuestionWatcher(ROUND_CACHE);
+    // The open question bank, which is indexed rather than cached
+    private static QuestionBank bank;
+    private static String bankFile;
+    // Open question bundles by name
+    private static Map<String, QuestionBundle> bundles =
+        new HashMap<String, QuestionBundle>();
+    // Question files scanned in the background when the game starts
+    private static QuestionCatalog catalog;
+    // Sound effects decoded in the background when the game starts
+    private static SoundBank sounds;
 
     private String[] categories;
     private String[] methodCategories;
     private List<Label> catLabels;
-    private Question[] questions;
+    private Round round;
     private int score;
     private Label scoreAmount;
     
@@ -48,13 +79,24 @@ public class GameManager extends World implements ActionListener {
     private CountDownTimer timer = new CountDownTimer(DEFAULT_TIMER);
     private int questionCount;
     private int numQuestions;
-    private int questionsAdded;
-    private long lastAddTime;
+    // Question ids in the order their buttons are revealed
+    private int[] fillOrder = new int[0];
+    private int fillIndex;
+    private long fillStart;
+    private Random fillRandom = new Random();
     private boolean provideTimer = true;
     private boolean provideChoices = true;
     private Label errorMsg;
     private OverScreen over;
     private boolean playedFinal;
+    // The question file for the next round
+    private String roundFile = "basics.txt";
+    private RoundPrefetcher prefetcher = new RoundPrefetcher();
+    // The round cache version when the prefetch started
+    private long prefetchVersion;
+    private CardCache cards;
+    // Runs work finished on background threads in act()
+    private final ActExecutor actExecutor = new ActExecutor(ACT_BUDGET_MILLIS);
     RestClient rs  = null;
 
     /**
@@ -63,6 +105,9 @@ public class GameManager extends World implements ActionListener {
     
     public GameManager() {
         super(600, 454, 1);
+        // Paint changed components once, after every actor has acted
+        setActOrder(Actor.class, GUIComponent.Validator.class);
+        addObject(new GUIComponent.Validator(), 0, 0);
         Label label = new Label("Score:", SCORE_FONT, Color.CYAN);
         addObject(label, 500, 444);
         scoreAmount = new Label("" + score, SCORE_FONT, Color.CYAN);
@@ -71,12 +116,19 @@ public class GameManager extends World implements ActionListener {
         errorMsg = new Label("", LARGE_FONT, Color.RED);
         errorMsg.setSize(new Dimension(getWidth() - 50, 100));
         addObject(errorMsg, getWidth() / 2, getHeight() - 50);
+        cards = new CardCache(getWidth(), getHeight());
         
         //Added Neha starts 
         methodCategories = new String[5]; //We have 5 sorting games
         
         //Added Neha ends
         
+        if (catalog == null) {
+            catalog = QuestionCatalog.scan(GameManager.class.getClassLoader());
+        }
+        if (sounds == null) {
+            sounds = SoundBank.load(GameManager.class.getClassLoader());
+        }
         rs = new RestClient();
         System.out.println("Pushing player data to Cloud ==== > Game ID: "+ userEntry.gameId +"\n User Name:"+ userEntry.userName);
         
@@ -87,6 +139,34 @@ public class GameManager extends World implements ActionListener {
 
     // Accessor and setter methods
 
+    /**
+     * Returns the catalog of question files.
+     *
+     * @return The catalog, which may still be scanning files.
+     */
+    public static QuestionCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the sound effects of the game.
+     *
+     * @return The sound bank, which may still be loading sounds.
+     */
+    public static SoundBank getSoundBank() {
+        return sounds;
+    }
+
+    /**
+     * Returns the executor that runs tasks on the act thread. Background
+     * threads post the work that changes the world or its actors to it.
+     *
+     * @return The act thread executor.
+     */
+    public ActExecutor getActExecutor() {
+        return actExecutor;
+    }
+
     /**
      * Set whether to provide choices for questions.
      *
@@ -145,6 +225,15 @@ public class GameManager extends World implements ActionListener {
         return currentQuestion;
     }
 
+    /**
+     * Returns the cache of question and response cards for this game.
+     *
+     * @return The card cache.
+     */
+    public CardCache getCardCache() {
+        return cards;
+    }
+
     // Public helper methods
 
     /**
@@ -184,37 +273,38 @@ public class GameManager extends World implements ActionListener {
         removeObject(timer);
     }
 
+    /**
+     * Stops queueing typed keys while the game is paused, reset or
+     * recompiled. A focused text field listens again when it next acts.
+     */
+    public void stopped() {
+        TextField.stopListening();
+    }
+
     /**
      * Used for board fill
      */
     public void act() {
-        if (questionsAdded < numQuestions
-                && System.currentTimeMillis() - lastAddTime > FILL_PAUSE) {
-            lastAddTime = System.currentTimeMillis();
-            addQuestionToBoard();
+        actExecutor.runPending();
+        // Reveal every button due by this frame. Each is due a fixed time
+        // after the fill started, so late frames do not slow the fill.
+        long elapsed = System.nanoTime() - fillStart;
+        while (fillIndex < fillOrder.length
+                && elapsed >= fillIndex * FILL_PAUSE_NANOS) {
+            int id = fillOrder[fillIndex++];
+            addObject(grid[id / ROWS][id % ROWS], 66 + 94 * (id / ROWS),
+                128 + (id % ROWS) * 68);
         }
     }
 
     /**
-     * Add every single question to the game board
+     * Makes the game board button for a question.
+     *
+     * @param id The question id.
+     * @return The button, which is not added to the world.
      */
-    private void addQuestionToBoard() {
-        int id = Greenfoot.getRandomNumber(30);
-        int row = id % 5;
-        int col = id / 5;
-        while (questions[id] == null || grid[col][row] != null) {
-            id++;
-            row = id % 5;
-            col = id / 5;
-            if (id >= 30) {
-                id = 0;
-                row = id % 5;
-                col = id / 5;
-            }
-        }
-        // Now have a unique and valid question
-        Question q = questions[id];
-        int amount = q.getValue();
+    private Button makeQuestionButton(int id) {
+        int amount = round.getValue(id);
         String text = "" + amount;
         if (text.length() < 4) text = "  " + text;
         Button b = new Button(text, MED_FONT, Color.WHITE,
@@ -226,9 +316,48 @@ public class GameManager extends World implements ActionListener {
         b.setBackgroundHover(Color.YELLOW);
         b.setID(id);
         b.addActionListener(this);
-        grid[col][row] = b;
-        addObject(b, 66 + 94 * col, 128 + row * 68);
-        questionsAdded++;
+        return b;
+    }
+
+    /**
+     * Returns the question ids shuffled into a random order that depends
+     * only on the seed.
+     *
+     * @param ids The question ids, which are shuffled in place.
+     * @param seed The seed for the order.
+     * @return The shuffled ids.
+     */
+    static int[] shuffle(int[] ids, long seed) {
+        Random rnd = new Random(seed);
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+        return ids;
+    }
+
+    /**
+     * Tells the server that the player joined the game, without waiting for
+     * it. The reply is reported on the act thread.
+     *
+     * @param gameId The id of the game.
+     * @param userName The name of the player.
+     */
+    private void postGame(String gameId, String userName) {
+        rs.postDataAsync(gameId, userName).whenCompleteAsync(
+            new BiConsumer<String, Throwable>() {
+                public void accept(String output, Throwable t) {
+                    if (t == null) {
+                        System.out.println("Output from Server .... \n");
+                        System.out.println(output);
+                    } else {
+                        System.out.println("WARNING: Could not post the game: "
+                            + (t.getCause() != null ? t.getCause() : t));
+                    }
+                }
+            }, actExecutor);
     }
 
     /**
@@ -242,13 +371,20 @@ public class GameManager extends World implements ActionListener {
             addObject(cat, 68 + 94 * i, 44);
             catLabels.add(cat);
         }
-        // Ensure all grid elements set to null
-        for (int col = 0; col < grid.length; col++) {
-            for (int row = 0; row < grid[col].length; row++) {
-                grid[col][row] = null;
+        // Build all the buttons before the fill starts
+        int[] ids = new int[COLS * ROWS];
+        int count = 0;
+        for (int id = 0; id < COLS * ROWS; id++) {
+            if (round.hasQuestion(id)) {
+                grid[id / ROWS][id % ROWS] = makeQuestionButton(id);
+                ids[count++] = id;
+            } else {
+                grid[id / ROWS][id % ROWS] = null;
             }
         }
-        questionsAdded = 0; // Allows act() to start filling board
+        fillOrder = shuffle(Arrays.copyOf(ids, count), fillRandom.nextLong());
+        fillIndex = 0; // Allows act() to start filling board
+        fillStart = System.nanoTime();
     }
 
     // Game flow methods
@@ -269,17 +405,35 @@ public class GameManager extends World implements ActionListener {
         addObject(splash, 0, 0);
         //userEntry
         addObject(userEntry, getWidth() / 2, getHeight() / 2 + 37);
+        prefetchRound(roundFile);
+    }
+
+    /**
+     * Replaces the user entry screen with the settings screen, where the
+     * player chooses the timer, the multiple choices and the question file
+     * for the round.
+     */
+    public void showSettings() {
+        if (getObjects(UserEntryScreen.class).size() != 0) userEntry.clear();
+        // Describe the files as they are now, not as they were at startup
+        catalog.rescan();
+        settings.setFilename(roundFile);
+        addObject(settings, getWidth() / 2, getHeight() / 2 + 37);
     }
 
     
     public void startRound() {
         questionCount = 0;
+        if (getObjects(SettingsScreen.class).size() != 0) {
+            String filename = settings.getFilename().trim();
+            if (filename.length() != 0) roundFile = filename;
+        }
         boolean valid = false;
         while (!valid) {
             try {
                 //System.out.println(userEntry.getUserName());
-                loadRound("basics.txt");
-                rs.postData(userEntry.gameId, userEntry.userName);
+                loadRound(roundFile);
+                postGame(userEntry.gameId, userEntry.userName);
                 valid = true;
             } catch (IOException ioe) {
                 String msg = ioe.getMessage();
@@ -294,7 +448,7 @@ public class GameManager extends World implements ActionListener {
         if (getObjects(SplashScreen.class).size() != 0) splash.clear();
         
         makeBoard();
-        Greenfoot.playSound("boardfill.wav");
+        sounds.play("boardfill.wav");
         System.gc();
     }
 
@@ -305,7 +459,7 @@ public class GameManager extends World implements ActionListener {
      */
     public void actionPerformed(GUIComponent c) {
         int buttonID = c.getID();
-        if (buttonID < 0 || buttonID >= questions.length) {
+        if (buttonID < 0 || buttonID >= round.getMaxQuestions()) {
             System.out.println("Error: unknown button: " + c);
             return;
         }
@@ -322,12 +476,18 @@ public class GameManager extends World implements ActionListener {
      * @param questionNum The question number to show.
      */
     private void showQuestion(int questionNum) {
-        if (questionNum < questions.length) {
-            Greenfoot.playSound("tone.wav");
-            currentQuestion = questions[questionNum];
+        if (questionNum < round.getMaxQuestions()) {
+            sounds.play("tone.wav");
+            currentQuestion = round.getQuestion(questionNum);
             if (currentQuestion != null) {
                 currentQuestion.setDisplayAnswers(provideChoices);
                 addObject(currentQuestion, getWidth() / 2, getHeight() / 2);
+                // Draw the responses while the player answers
+                cards.prerenderResponses(currentQuestion);
+            } else {
+                // A bank question whose file can no longer be read
+                printErrorMessage("Cannot read question " + (questionNum + 1));
+                endQuestion();
             }
         }
     }
@@ -342,11 +502,11 @@ public class GameManager extends World implements ActionListener {
         stopTimer();
         if (correct) {
             score += currentQuestion.getValue();
-            Greenfoot.playSound("ansright.wav");
+            sounds.play("ansright.wav");
             response.setType(Response.Type.RIGHT);
         } else {
             score -= currentQuestion.getValue();
-            Greenfoot.playSound("answrong.wav");
+            sounds.play("answrong.wav");
             response.setType(Response.Type.WRONG);
         }
         scoreAmount.setText("" + score);
@@ -377,10 +537,10 @@ public class GameManager extends World implements ActionListener {
         stopTimer();
         if (correct) {
             score += currentQuestion.getValue();
-            Greenfoot.playSound("ansright.wav");
+            sounds.play("ansright.wav");
         } else {
             score -= currentQuestion.getValue();
-            Greenfoot.playSound("answrong.wav");
+            sounds.play("answrong.wav");
         }
         scoreAmount.setText("" + score);
         scoreAmount.setLocation(530 + scoreAmount.getWidth() / 2,
@@ -392,7 +552,7 @@ public class GameManager extends World implements ActionListener {
      * Responds to a timeout and advances.
      */
     public void timeout() {
-        Greenfoot.playSound("timeout.wav");
+        sounds.play("timeout.wav");
         stopTimer();
         endQuestion();
     }
@@ -404,7 +564,7 @@ public class GameManager extends World implements ActionListener {
         if (getObjects(Response.class).size() != 0) response.clear();
         if (getObjects(Question.class).size() != 0) currentQuestion.clear();
         questionCount++;
-        if (questionCount == numQuestions && questions[30] != null) {
+        if (questionCount == numQuestions && round.hasQuestion(30)) {
             startFinalRound();
         } else if (questionCount >= numQuestions || playedFinal) {
             gameOver();
@@ -415,8 +575,8 @@ public class GameManager extends World implements ActionListener {
      * Method startFinalRound
      */
     public void startFinalRound() {
-        Greenfoot.playSound("applause.wav");
-        if (score > 0 && questions[30] != null) {
+        sounds.play("applause.wav");
+        if (score > 0 && round.hasQuestion(30)) {
             playedFinal = true;
             betScreen = new BetScreen(categories[6]);
             addObject(betScreen, getWidth() / 2, getHeight() / 2);
@@ -433,7 +593,8 @@ public class GameManager extends World implements ActionListener {
      */
     public void finalRound(int bet) {
         questionCount++;
-        questions[30].setValue(bet);
+        Question last = round.getQuestion(30);
+        if (last != null) last.setValue(bet);
         showQuestion(30);
     }
 
@@ -441,11 +602,17 @@ public class GameManager extends World implements ActionListener {
      * Display the game over.
      */
     public void gameOver() {
-        Greenfoot.playSound("applause.wav");
-        settings.setFilename("basics2.txt");
+        sounds.play("applause.wav");
+        roundFile = "basics2.txt";
+        settings.setFilename(roundFile);
+        prefetchRound(roundFile);
+        fillIndex = fillOrder.length; // Stop any fill still running
         for (int col = 0; col < grid.length; col++) {
             for (int row = 0; row < grid[col].length; row++) {
-                if (grid[col][row] != null) removeObject(grid[col][row]);
+                if (grid[col][row] != null) {
+                    removeObject(grid[col][row]);
+                    grid[col][row].dispose();
+                }
             }
         }
         removeObjects(catLabels);
@@ -467,209 +634,222 @@ public class GameManager extends World implements ActionListener {
      */
     public static String[] wordWrap(String str, int max) {
         if (max <= 0) return new String[0];
-        Pattern newline = Pattern.compile("\\\\n");
-        Matcher nl = newline.matcher(str);
-        StringBuffer sb = new StringBuffer();
-        while (nl.find()) {
-            nl.appendReplacement(sb, "\n");
-        }
-        nl.appendTail(sb);
-        str = new String(sb);
-        Pattern wrapRE =
-            Pattern.compile(".{0,"+(max-1)+"}(?:\\S(?:-| |\n|$)|\n|$)");
-        List<String> list = new LinkedList<String>();
-        Matcher m = wrapRE.matcher(str);
-        while (m.find()) list.add(m.group());
-        if (list.get(list.size() - 1).equals("")) list.remove(list.size() - 1);
-        return (String[]) list.toArray(new String[list.size()]);
+        if (str.indexOf("\\n") >= 0) str = str.replace("\\n", "\n");
+        return LineBreaker.wrap(str, max);
+    }
+
+    /**
+     * Wraps a single string into lines no wider than some number of pixels
+     * in the specified font. Also will split lines on newlines or the
+     * characters "\n" allowing simple manually-placed newlines.
+     *
+     * @param str The text to word wrap.
+     * @param font The font in which the lines are drawn.
+     * @param width The maximum width of a line in pixels.
+     * @return The word-wrapped lines of text, which must not be changed.
+     */
+    public static String[] wordWrap(String str, Font font, int width) {
+        return LineBreaker.wrap(str, font, width);
     }
 
     private void loadRound(String filename) throws IOException {
-        categories = new String[MAX_CATEGORIES];
-        questions = new Question[MAX_QUESTS];
-        ArrayList<String> lines = loadFile(filename);
-        convertUnicode(lines);
-        readCategories(lines);
-        readQuestions(lines);
-        readAnswers(lines);
-        readAnswerOrder(lines);
-        readExplanations(lines);
-    }
-
-    private ArrayList<String> loadFile(String filename) throws IOException {
-        ArrayList<String> lines = new ArrayList<String>();
-        // Allow loading from JAR files
-        ClassLoader classLoader = getClass().getClassLoader();
-        InputStream is = classLoader.getResourceAsStream(filename);
-        if (is == null) {
-            throw new IOException("No such file: " + filename);
+        // A question file edited since the prefetch makes its round stale
+        if (ROUND_CACHE.getVersion() != prefetchVersion) prefetcher.cancel();
+        Round next = prefetcher.take(filename);
+        if (next == null) next = fetchRound(filename).copy();
+        if (next.getNumQuestions() == 0) {
+            throw new IOException("No questions in " + filename);
         }
-        BufferedReader reader = new BufferedReader(
-                                new InputStreamReader(is));
-        String line = reader.readLine();
-        while (line != null) {
-            if (!line.equals("") && !line.startsWith("#")) {
-                lines.add(line);
+        round = next;
+        categories = round.getCategories();
+        numQuestions = round.getNumQuestions();
+        cards.prerender(round, provideChoices);
+    }
+
+    /**
+     * Starts loading a round in the background so that it is ready when the
+     * player starts the next round.
+     *
+     * @param filename The name of the question file.
+     */
+    private void prefetchRound(final String filename) {
+        if (ROUND_CACHE.getVersion() != prefetchVersion) prefetcher.cancel();
+        prefetchVersion = ROUND_CACHE.getVersion();
+        prefetcher.prefetch(filename, new Callable<Round>() {
+            public Round call() throws IOException {
+                return fetchRound(filename).copy();
             }
-            line = reader.readLine();
+        });
+    }
+
+    /**
+     * Returns the shared round for a question file, parsing the file only
+     * when its contents are not already in the round cache.
+     * Names joined by "+" generate a new board sampled from those files.
+     *
+     * @param filename The name of the question file.
+     * @return The shared round; play a copy of it.
+     * @throws IOException if the file cannot be found or read.
+     */
+    private static Round fetchRound(String filename) throws IOException {
+        if (filename.endsWith(QuestionBank.LIST_EXTENSION)) {
+            return openBank(filename).makeRound(new Random());
         }
-        reader.close();
-        return lines;
-    }
-
-    private void convertUnicode(ArrayList<String> lines) {
-        Pattern unicode = Pattern.compile("\\\\u([0-9A-Fa-f]+)");
-        for (int i = 0; i < lines.size(); i++) {
-            Matcher m = unicode.matcher(lines.get(i));
-            StringBuffer sb = new StringBuffer();
-            while (m.find()) {
-                int code = Integer.valueOf(m.group(1), 16);
-                String uc = "" + Character.valueOf((char)code);
-                m.appendReplacement(sb, uc);
+        if (filename.indexOf(BOARD_SEPARATOR) >= 0) {
+            // A generated board is different every time, so it is not cached
+            BoardGenerator generator = new BoardGenerator(
+                GameManager.class.getClassLoader());
+            return generator.generate(filename.split("\\" + BOARD_SEPARATOR),
+                System.nanoTime());
+        }
+        QuestionBundle bundle = findBundle(filename);
+        if (bundle != null) return fetchBundled(bundle, filename);
+        byte[] content = loadFile(filename);
+        String key = RoundCache.key(filename, content);
+        Round round = ROUND_CACHE.get(key);
+        if (round != null) return round;
+
+        QuestionParser parser = new QuestionParser(MAX_CATEGORIES, MAX_QUESTS);
+        File source = findFile(filename);
+        if (source != null) {
+            // Use the compiled round when current, otherwise recompile it
+            round = RoundFile.load(parser, source);
+            if (round == null) {
+                try {
+                    round = RoundFile.compile(parser, source);
+                } catch (IOException ioe) {
+                    System.out.println("WARNING: cannot compile " + filename
+                        + ": " + ioe.getMessage());
+                }
             }
-            m.appendTail(sb);
-            lines.set(i, new String(sb));
         }
+        if (round == null) {
+            round = parser.parse(new InputStreamReader(
+                new ByteArrayInputStream(content)));
+        }
+        ROUND_CACHE.put(key, round);
+        if (source != null) WATCHER.watch(filename, source, content, round);
+        return round;
     }
 
-    private void createMethodCategories(){
-        methodCategories[0] = "Bubble Sort";
-        methodCategories[1] = "Insertion Sort";
-        methodCategories[2] = "Quick Sort";
-        methodCategories[3] = "Selection Sort";
-        methodCategories[4] = "Merge Sort";
-        methodCategories[5] = "General Maths";
-        
+    /**
+     * Returns the shared round for a file in a question bundle. The file is
+     * only inflated when its round is not already in the round cache, and
+     * then it is decoded straight into the parser.
+     *
+     * @param bundle The bundle holding the file.
+     * @param filename The name of the file, optionally prefixed with the
+     *        bundle name.
+     * @return The shared round; play a copy of it.
+     * @throws IOException if the file cannot be read.
+     */
+    private static Round fetchBundled(QuestionBundle bundle, String filename)
+            throws IOException {
+        int sep = filename.indexOf(BUNDLE_SEPARATOR);
+        if (sep >= 0) filename = filename.substring(sep + 1);
+        String key = bundle.key(filename);
+        Round round = ROUND_CACHE.get(key);
+        if (round != null) return round;
+        QuestionParser parser = new QuestionParser(MAX_CATEGORIES, MAX_QUESTS);
+        round = parser.parse(bundle.openReader(filename));
+        ROUND_CACHE.put(key, round);
+        return round;
     }
-    
-    
-    private void readCategories(final ArrayList<String> lines) {
-        Pattern cat = Pattern.compile("(?i):CAT(\\d+):(.+)");
-        Matcher m = cat.matcher("");
-        for (int i = 0; i < lines.size(); i++) {
-            m.reset(lines.get(i));
-            if (m.matches()) {
-                int index = Integer.valueOf(m.group(1)) - 1;
-                if (index >= MAX_CATEGORIES) {
-                    System.out.println("WARNING: Category number "
-                    + (index + 1) + " exceeds maximum allowed ("
-                    + MAX_CATEGORIES + ")");
-                } else if (categories[index] != null) {
-                    System.out.println("WARNING: repeating category "
-                        + (index + 1));
-                } else {
-                    categories[index] = m.group(2);
-                }
-            }
+
+    /**
+     * Returns the bundle holding a question file, or <code>null</code> if
+     * the file is shipped uncompressed or not at all.
+     *
+     * @param filename The name of the question file, or a bundle name and
+     *        file name joined by "!".
+     * @return The bundle holding the file, or <code>null</code>.
+     * @throws IOException if a named bundle cannot be opened.
+     */
+    private static synchronized QuestionBundle findBundle(String filename)
+            throws IOException {
+        int sep = filename.indexOf(BUNDLE_SEPARATOR);
+        if (sep >= 0) return openBundle(filename.substring(0, sep));
+        ClassLoader classLoader = GameManager.class.getClassLoader();
+        if (classLoader.getResource(filename) != null
+                || classLoader.getResource(DEFAULT_BUNDLE) == null) {
+            return null;
         }
+        QuestionBundle bundle = openBundle(DEFAULT_BUNDLE);
+        return bundle.contains(filename) ? bundle : null;
     }
 
-    private void readQuestions(final ArrayList<String> lines) {
-        Pattern qst = Pattern.compile("(?i):QUEST(\\d+):(\\d+):(.+)");
-        Matcher m = qst.matcher("");
-        numQuestions = 0;
-        for (int i = 0; i < lines.size(); i++) {
-            m.reset(lines.get(i));
-            if (m.matches()) {
-                int index = Integer.valueOf(m.group(1)) - 1;
-                if (index >= MAX_QUESTS) {
-                    System.out.println("ERROR: QUESTION number "
-                    + (index + 1) + " exceeds maximum allowed ("
-                    + MAX_QUESTS + ")");
-                } else {
-                    int value = Integer.valueOf(m.group(2));
-                    Question question = new Question(m.group(3), value);
-                    if (questions[index] != null) {
-                        System.out.println("WARNING: repeating question "
-                            + (index + 1));
-                    } else {
-                        numQuestions++;
-                    }
-                    questions[index] = question;
-                }
-            }
+    private static QuestionBundle openBundle(String name) throws IOException {
+        QuestionBundle bundle = bundles.get(name);
+        if (bundle == null) {
+            bundle = QuestionBundle.open(GameManager.class.getClassLoader(),
+                name);
+            bundles.put(name, bundle);
         }
-        // Adjust count for final round question
-        if (questions[30] != null) numQuestions--;
-    }
-
-    private void readAnswers(final ArrayList<String> lines) {
-        Pattern ans = Pattern.compile("(?i):ANSWER(\\d+):(\\w):(.+)");
-        Matcher m = ans.matcher("");
-        for (int i = 0; i < lines.size(); i++) {
-            m.reset(lines.get(i));
-            if (m.matches()) {
-                int index = Integer.valueOf(m.group(1)) - 1;
-                if (index >= MAX_QUESTS) {
-                    System.out.println("ERROR: ANSWER for question number "
-                    + (index + 1) + " exceeds maximum allowed question ("
-                    + MAX_QUESTS + ")");
-                } else if (questions[index] == null) {
-                        System.out.println("ERROR: ANSWER number "
-                            + (index + 1) + "has no question.");
-                } else {
-                    String correct = m.group(2);
-                    Question question = questions[index];
-                    if (correct.equalsIgnoreCase("T")) {
-                        question.addAnswer(m.group(3), true);
-                    } else {
-                        question.addAnswer(m.group(3), false);
-                    }
-                }
+        return bundle;
+    }
+
+    /**
+     * Returns the question bank for a list file, opening it the first time.
+     *
+     * @param filename The name of the list file.
+     * @return The question bank.
+     * @throws IOException if the bank cannot be opened.
+     */
+    private static synchronized QuestionBank openBank(String filename)
+            throws IOException {
+        if (!filename.equals(bankFile)) {
+            File listFile = findFile(filename);
+            if (listFile == null) {
+                throw new IOException("No such file: " + filename);
             }
+            bank = QuestionBank.open(listFile);
+            bankFile = filename;
         }
+        return bank;
     }
 
-    private void readAnswerOrder(final ArrayList<String> lines) {
-        Pattern order = Pattern.compile("(?i):ANSWERORDER(\\d+):(.+)");
-        Matcher m = order.matcher("");
-        for (int i = 0; i < lines.size(); i++) {
-            m.reset(lines.get(i));
-            if (m.matches()) {
-                int index = Integer.valueOf(m.group(1)) - 1;
-                if (index >= MAX_QUESTS) {
-                    System.out.println("ERROR: ANSWERORDER for question number "
-                    + (index + 1) + " exceeds maximum allowed question ("
-                    + MAX_QUESTS + ")");
-                } else if (questions[index] == null) {
-                        System.out.println("ERROR: ANSWERORDER number "
-                            + (index + 1) + "has no question.");
-                } else {
-                    String text = m.group(2);
-                    Question question = questions[index];
-                    if (text.equalsIgnoreCase("randomized")) {
-                        question.shuffleAnswers();
-                    }
-                }
-            }
+    /**
+     * Returns the question file on disk, or <code>null</code> if the file
+     * is inside a JAR or does not exist.
+     */
+    private static File findFile(String filename) {
+        URL url = GameManager.class.getClassLoader().getResource(filename);
+        if (url == null || !"file".equals(url.getProtocol())) return null;
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException use) {
+            return null;
         }
     }
 
-    private void readExplanations(final ArrayList<String> lines) {
-        Pattern exp = Pattern.compile("(?i):EXPLANATION(\\d+):(.+)");
-        Matcher m = exp.matcher("");
-        for (int i = 0; i < lines.size(); i++) {
-            m.reset(lines.get(i));
-            if (m.matches()) {
-                int index = Integer.valueOf(m.group(1)) - 1;
-                if (index >= MAX_QUESTS) {
-                    System.out.println("ERROR: EXPLANATION for question number "
-                    + (index + 1) + " exceeds maximum allowed question ("
-                    + MAX_QUESTS + ")");
-                } else if (questions[index] == null) {
-                        System.out.println("ERROR: EXPLANATION number "
-                            + (index + 1) + "has no question.");
-                } else {
-                    Question question = questions[index];
-                    String explanation = question.getExplanation();
-                    if (explanation != null && !explanation.equals("")) {
-                        System.out.println(
-                            "WARNING: overwritting explanation for question "
-                            + (index + 1));
-                    }
-                    question.setExplanation(m.group(2));
-                }
+    private static byte[] loadFile(String filename) throws IOException {
+        // Allow loading from JAR files
+        ClassLoader classLoader = GameManager.class.getClassLoader();
+        InputStream is = classLoader.getResourceAsStream(filename);
+        if (is == null) {
+            throw new IOException("No such file: " + filename);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n = is.read(buf);
+            while (n >= 0) {
+                out.write(buf, 0, n);
+                n = is.read(buf);
             }
+            return out.toByteArray();
+        } finally {
+            is.close();
         }
     }
+
+    private void createMethodCategories(){
+        methodCategories[0] = "Bubble Sort";
+        methodCategories[1] = "Insertion Sort";
+        methodCategories[2] = "Quick Sort";
+        methodCategories[3] = "Selection Sort";
+        methodCategories[4] = "Merge Sort";
+        methodCategories[5] = "General Maths";
+        
+    }
 }
@@ -127,12 +127,13 @@ public class Label extends GUIComponent {
         if (getFont() != null) img.setFont(getFont());
         if (getForeground() != null) img.setColor(getForeground());
 
-        FontMetrics fm = g.getFontMetrics();
+        FontMetrics fm = TextMetrics.getFontMetrics(g.getFont());
         int lineHeight = (int) (fm.getHeight() * ASCENT_MULT);
         int y = lineHeight + (getHeight() - (lineHeight * lines.length)
             - fm.getDescent()) / 2;
         for (int i = 0; i < lines.length; i++) {
-            int x = getWidth() / 2 - fm.stringWidth(lines[i]) / 2;
+            int x = getWidth() / 2
+                - TextMetrics.stringWidth(g.getFont(), lines[i]) / 2;
             img.drawString(lines[i], x, y);
             y += lineHeight;
         }
@@ -0,0 +1,89 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Insets;
+
+/**
+ * A class which implements a simple line border in the color black.
+ *
+ * See the <code>GUIWorld</code> class for examples of how to use this
+ * interface.
+ *
+ * @author Ed Parrish
+ * @version 1.0  01/05/2011
+ */
+class LineBorder implements Border {
+    // Padding to leave small horizontal gap between box edge and cursor
+    private static final int X_PAD = 3;
+    private Color color;
+    private int thickness;
+
+    /**
+     * Creates a simple line border in the color black and a thickness of one.
+     */
+    public LineBorder() {
+        this(Color.BLACK, 1);
+    }
+
+    /**
+     * Creates a simple line border with the specified color and thickness.
+     *
+     * @param lineColor The color of the border.
+     * @param lineThickness The thickness of the border.
+     */
+    public LineBorder(Color lineColor, int lineThickness) {
+        color = lineColor;
+        thickness = lineThickness;
+    }
+
+    /**
+     * Paints the border for the specified component.
+     *
+     * @param c The component for which this border is being painted.
+     * @param g The graphics context in which to paint.
+     */
+    public void paintBorder(GUIComponent c, Graphics g) {
+        Color oldColor = g.getColor();
+        g.setColor(color);
+        for (int i = 0; i < thickness; i++)  {
+            g.drawRect(i, i, c.getWidth() - i - i - 1,
+                c.getHeight() - i - i - 1);
+        }
+        g.setColor(oldColor);
+    }
+
+    /**
+     * Returns a new <code>Insets</code> object where the <code>top</code>,
+     * <code>left</code>, <code>bottom</code>, and <code>right</code>
+     * fields return the values needed for drawing the border.
+     *
+     * @return A new <code>Insets</code> object with the required values
+     *         needed for drawing the border.
+     */
+    public Insets getBorderInsets()       {
+        return new Insets(thickness, thickness + X_PAD, thickness,
+            thickness + X_PAD);
+    }
+
+    /**
+     * Indicates whether another border is a line border of the same color
+     * and thickness, which paints the same way.
+     *
+     * @param o The object to compare with.
+     * @return <code>true</code> if the borders are the same;
+     *         <code>false</code> otherwise.
+     */
+    public boolean equals(Object o) {
+        if (!(o instanceof LineBorder)) return false;
+        LineBorder lb = (LineBorder) o;
+        return thickness == lb.thickness && color.equals(lb.color);
+    }
+
+    /**
+     * Returns a hash code consistent with <code>equals()</code>.
+     *
+     * @return The hash code of this border.
+     */
+    public int hashCode() {
+        return color.hashCode() * 31 + thickness;
+    }
+}
@@ -0,0 +1,192 @@
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Breaks text into lines, either by a number of characters or by the width
+ * of the text in pixels.
+ *
+ * Lines are broken after spaces and hyphens and on '\n' characters. When
+ * breaking by width, the two characters "\\n" used in question files also
+ * break a line, and each candidate line is measured with the font metrics
+ * of the font it is drawn in, so lines fill the available width without
+ * running past it. A word too wide for a line on its own is broken where
+ * it no longer fits.
+ *
+ * The lines for recently wrapped text are remembered, so drawing the same
+ * question or explanation again does not scan or measure it again. The
+ * returned arrays are shared and must not be changed.
+ *
+ * @version 1.0
+ */
+public class LineBreaker {
+    private static final int MAX_CACHED = 512;
+    private static final Map<Integer, Pattern> PATTERNS =
+        new HashMap<Integer, Pattern>();
+    private static final Map<Key, String[]> LINES =
+        new LinkedHashMap<Key, String[]>(64, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, String[]> e) {
+                return size() > MAX_CACHED;
+            }
+        };
+
+    private LineBreaker() { }
+
+    /**
+     * Wraps text into lines of at most some number of characters. Each line
+     * keeps the space or newline at which it was broken.
+     *
+     * @param str The text to word wrap.
+     * @param max The maximum number of characters per line.
+     * @return The word-wrapped lines of text.
+     */
+    public static synchronized String[] wrap(String str, int max) {
+        if (max <= 0) return new String[0];
+        Key key = new Key(str, null, max);
+        String[] lines = LINES.get(key);
+        if (lines == null) {
+            Pattern wrapRE = PATTERNS.get(max);
+            if (wrapRE == null) {
+                wrapRE = Pattern.compile(
+                    ".{0," + (max - 1) + "}(?:\\S(?:-| |\n|$)|\n|$)");
+                PATTERNS.put(max, wrapRE);
+            }
+            List<String> list = new ArrayList<String>();
+            Matcher m = wrapRE.matcher(str);
+            while (m.find()) list.add(m.group());
+            if (list.get(list.size() - 1).equals("")) {
+                list.remove(list.size() - 1);
+            }
+            lines = list.toArray(new String[list.size()]);
+            LINES.put(key, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Wraps text into lines no wider than some number of pixels when drawn
+     * in the specified font. Both '\n' and "\\n" start a new line.
+     *
+     * @param str The text to word wrap.
+     * @param font The font in which the lines are drawn.
+     * @param width The maximum width of a line in pixels.
+     * @return The word-wrapped lines of text.
+     */
+    public static synchronized String[] wrap(String str, Font font,
+            int width) {
+        if (str == null) str = "";
+        Key key = new Key(str, font, width);
+        String[] lines = LINES.get(key);
+        if (lines == null) {
+            FontMetrics fm = TextMetrics.getFontMetrics(font);
+            List<String> list = new ArrayList<String>();
+            int start = 0;
+            while (start <= str.length()) {
+                int end = start;
+                while (end < str.length() && str.charAt(end) != '\n'
+                        && !str.startsWith("\\n", end)) {
+                    end++;
+                }
+                breakParagraph(str.substring(start, end), fm, width, list);
+                start = end + (str.startsWith("\\n", end) ? 2 : 1);
+            }
+            // No extra blank line for text ending in a newline
+            int last = list.size() - 1;
+            if (last > 0 && list.get(last).length() == 0) list.remove(last);
+            lines = list.toArray(new String[list.size()]);
+            LINES.put(key, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Breaks a paragraph without newlines into lines that fit the width.
+     */
+    private static void breakParagraph(String text, FontMetrics fm,
+            int width, List<String> lines) {
+        if (text.length() == 0) {
+            lines.add(text);
+            return;
+        }
+        int start = 0;
+        while (start < text.length()) {
+            // The end of the longest line found to fit so far
+            int fits = start;
+            int end = nextBreak(text, start);
+            while (end <= text.length()
+                    && fm.stringWidth(trimEnd(text, start, end)) <= width) {
+                fits = end;
+                if (end == text.length()) break;
+                end = nextBreak(text, end);
+            }
+            if (fits == start) {
+                // The next word is wider than a line on its own
+                fits = start + 1;
+                while (fits < text.length() && fm.stringWidth(
+                        text.substring(start, fits + 1)) <= width) {
+                    fits++;
+                }
+            }
+            lines.add(trimEnd(text, start, fits));
+            start = fits;
+            while (start < text.length() && text.charAt(start) == ' ') {
+                start++;
+            }
+        }
+    }
+
+    /**
+     * Returns the position after the next space or hyphen following a
+     * word, or the end of the text.
+     */
+    private static int nextBreak(String text, int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) == ' ') i++;
+        while (i < text.length()) {
+            char c = text.charAt(i++);
+            if (c == ' ' || c == '-') return i;
+        }
+        return text.length();
+    }
+
+    /**
+     * Returns part of the text without its trailing spaces.
+     */
+    private static String trimEnd(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) == ' ') end--;
+        return text.substring(start, end);
+    }
+
+    /**
+     * Identifies wrapped text by the text, font and line length.
+     */
+    private static class Key {
+        private final String text;
+        private final Font font;
+        private final int length;
+
+        Key(String str, Font f, int max) {
+            text = str;
+            font = f;
+            length = max;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return length == k.length && text.equals(k.text)
+                && (font == null ? k.font == null : font.equals(k.font));
+        }
+
+        public int hashCode() {
+            return text.hashCode() * 31 + length
+                + (font == null ? 0 : font.hashCode());
+        }
+    }
+}
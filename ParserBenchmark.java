@@ -0,0 +1,151 @@
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures how fast question files are loaded and parsed.
+ *
+ * A synthetic file is written with <code>QuestionGenerator</code> and then
+ * loaded repeatedly the way <code>GameManager</code> loads a round: the
+ * file is read into memory and parsed into a round of question entries.
+ * Parsing creates no actors and the benchmark never initializes
+ * <code>GameManager</code>, so it runs without Greenfoot. After a few
+ * warm-up runs, the benchmark reports the median and best lines per second
+ * and megabytes per second, the bytes allocated per question and the peak
+ * heap use. The file depends only on its size and seed, so results
+ * from different runs and versions of the parser can be compared.
+ *
+ * To run the benchmark from the command line:
+ * <pre>java ParserBenchmark [questions [runs [seed]]]</pre>
+ *
+ * @version 1.0
+ */
+public class ParserBenchmark {
+    private static final int WARMUP_RUNS = 3;
+    private static final double MB = 1024.0 * 1024.0;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The number of questions, the number of measured runs and
+     *        the seed, all optional.
+     * @throws IOException if the synthetic file cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        int numQuestions = args.length > 0 ? Integer.parseInt(args[0])
+            : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        File file = File.createTempFile("bench", ".txt");
+        file.deleteOnExit();
+        Writer out = new BufferedWriter(new FileWriter(file));
+        try {
+            new QuestionGenerator(seed).generate(out, numQuestions);
+        } finally {
+            out.close();
+        }
+        byte[] content = Files.readAllBytes(file.toPath());
+        int lines = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') lines++;
+        }
+        System.out.println("File: " + numQuestions + " questions, " + lines
+            + " lines, " + String.format("%.2f", content.length / MB)
+            + " MB, seed " + seed);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) load(file, numQuestions);
+        System.gc();
+        resetPeakHeap();
+
+        double[] seconds = new double[runs];
+        long[] allocated = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long before = allocatedBytes();
+            long start = System.nanoTime();
+            Round round = load(file, numQuestions);
+            seconds[i] = (System.nanoTime() - start) / 1e9;
+            allocated[i] = allocatedBytes() - before;
+            if (round.getNumQuestions() != numQuestions) {
+                System.out.println("ERROR: parsed " + round.getNumQuestions()
+                    + " questions");
+            }
+        }
+        long peak = peakHeap();
+
+        Arrays.sort(seconds);
+        Arrays.sort(allocated);
+        double median = seconds[runs / 2];
+        double best = seconds[0];
+        System.out.println(String.format("Time:       median %.1f ms, "
+            + "best %.1f ms (%d runs)", median * 1000, best * 1000, runs));
+        System.out.println(String.format("Lines/s:    median %.0f, best %.0f",
+            lines / median, lines / best));
+        System.out.println(String.format("MB/s:       median %.1f, best %.1f",
+            content.length / MB / median, content.length / MB / best));
+        if (allocated[0] >= 0) {
+            System.out.println(String.format("Allocation: %.0f bytes per "
+                + "question", (double) allocated[runs / 2] / numQuestions));
+        } else {
+            System.out.println("Allocation: not available on this JVM");
+        }
+        System.out.println(String.format("Peak heap:  %.1f MB", peak / MB));
+    }
+
+    /**
+     * Loads a round the way <code>GameManager</code> does.
+     */
+    private static Round load(File file, int numQuestions)
+            throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        int numCategories = (numQuestions + GameManager.ROWS - 1)
+            / GameManager.ROWS + 1;
+        // One more slot than questions, so the last is not a final question
+        QuestionParser parser = new QuestionParser(numCategories,
+            numQuestions + 1);
+        return parser.parse(new InputStreamReader(
+            new ByteArrayInputStream(content)));
+    }
+
+    /**
+     * Returns the bytes allocated so far by this thread, or -1 if the JVM
+     * cannot tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void resetPeakHeap() {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -14,12 +14,16 @@ import java.awt.Color;
 public class Question extends Actor {
     private static final GreenfootImage DEFAULT_IMG = new GreenfootImage(1, 1);
     private static final int LINE_LENGTH = 60;
+    // Width of the world less a 30 pixel border on each side
+    private static final int TEXT_WIDTH = 540;
+    // The parsed question this was built from, shared by every copy
+    private final QuestionParser.Entry entry;
     private String[] text;
     private List<Answer> answers;
     private String explanation = "";
     private int value;
-    private static GreenfootImage img;
     private boolean displayAnswers = true;
+    private boolean shuffled;
     private GameManager world;
 
     /**
@@ -29,25 +33,50 @@ public class Question extends Actor {
      * @param questionValue The value of the question.
      */
     public Question(String question, int questionValue) {
-        text = GameManager.wordWrap(question, LINE_LENGTH);
+        entry = new QuestionParser.Entry();
+        entry.text = question;
+        entry.value = questionValue;
+        text = wrap(question);
         answers = new ArrayList<Answer>();
         value = questionValue;
     }
 
+    /**
+     * Create a question from a question parsed from a question file.
+     *
+     * @param parsed The parsed question, which is not changed.
+     */
+    public Question(QuestionParser.Entry parsed) {
+        entry = parsed;
+        text = wrap(parsed.text);
+        answers = new ArrayList<Answer>(parsed.answers.size());
+        for (int i = 0; i < parsed.answers.size(); i++) {
+            addAnswer(parsed.answers.get(i), parsed.correct.get(i));
+        }
+        value = parsed.value;
+        if (parsed.randomized) shuffleAnswers();
+        if (parsed.explanation != null) setExplanation(parsed.explanation);
+    }
+
     /**
      *  Create a copy of a Question from another Question.
      *
      * @param original The Question to copy from.
      */
     public Question(final Question original) {
-        text = new String[original.text.length];
-        for (int i = 0; i < original.text.length; i++) {
-            text[i] = original.text[i];
+        // The wrapped lines are never modified so they can be shared
+        entry = original.entry;
+        text = original.text;
+        answers = new ArrayList<Answer>(original.answers.size());
+        for (int i = 0; i < original.answers.size(); i++) {
+            Answer a = original.answers.get(i);
+            answers.add(new Answer(a.getText(), a.isCorrect()));
         }
-        answers = new ArrayList(original.answers);
         explanation = original.explanation;
         value = original.value;
-        img = new GreenfootImage(original.img);
+        shuffled = original.shuffled;
+        if (shuffled) Collections.shuffle(answers);
+        numberAnswers();
     }
 
     /**
@@ -69,7 +98,9 @@ public class Question extends Actor {
      *        otherwise <code>false</code>.
      */
     public void addAnswer(String answerText, boolean correct) {
-        answers.add(new Answer(answerText, correct));
+        Answer answer = new Answer(answerText, correct);
+        answer.setIndex(answers.size());
+        answers.add(answer);
     }
 
     /**
@@ -77,6 +108,15 @@ public class Question extends Actor {
      */
     public void shuffleAnswers() {
         Collections.shuffle(answers);
+        shuffled = true;
+        numberAnswers();
+    }
+
+    /**
+     * Gives each answer its position in the list, used for its label.
+     */
+    private void numberAnswers() {
+        for (int i = 0; i < answers.size(); i++) answers.get(i).setIndex(i);
     }
 
     /**
@@ -92,6 +132,15 @@ public class Question extends Actor {
         return answers.indexOf(answer);
     }
 
+    /**
+     * Returns the number of answers for this question.
+     *
+     * @return The number of answers.
+     */
+    public int getAnswerCount() {
+        return answers.size();
+    }
+
     /**
      * Enables or disables the display of the multiple choice answer list.
      *
@@ -166,6 +215,16 @@ public class Question extends Actor {
         return value;
     }
 
+    /**
+     * Returns the parsed question this question was built from, which
+     * identifies its card in the <code>CardCache</code>.
+     *
+     * @return The parsed question, which must not be changed.
+     */
+    QuestionParser.Entry getEntry() {
+        return entry;
+    }
+
     /**
      * Returns a string representation of the object for debugging purposes.
      *
@@ -184,8 +243,6 @@ public class Question extends Actor {
             Answer a = answers.get(i);
             a.setImage(DEFAULT_IMG);
         }
-        img.setColor(Color.BLUE);
-        img.fill();
         getWorld().removeObject(this);
     }
 
@@ -204,11 +261,44 @@ public class Question extends Actor {
      * Draw the question screen.
      */
     private void draw() {
-        final int BORDER = 30;
-        if (img == null) {
+        boolean withAnswers = displayAnswers && getAnswerCount() != 0;
+        setImage(world.getCardCache().getQuestionCard(this, withAnswers)
+            .getImage());
+
+        if (withAnswers) {
             World w = getWorld();
-            img = new GreenfootImage(w.getWidth(), w.getHeight());
+            for (int i = 0; i < answers.size(); i++) {
+                w.addObject(answers.get(i), world.getWidth() / 2,
+                    (text.length * 25 + LINE_LENGTH) + i * 40);
+            }
         }
+    }
+
+    /**
+     * Wraps question text into the lines drawn on the card.
+     */
+    private static String[] wrap(String question) {
+        return GameManager.wordWrap(question, GameManager.SMALL_FONT,
+            TEXT_WIDTH);
+    }
+
+    /**
+     * Draws the card showing a question. This may be called from any
+     * thread, as it only uses the parsed question.
+     *
+     * @param parsed The parsed question.
+     * @param width The width of the card.
+     * @param height The height of the card.
+     * @param withAnswers Set <code>true</code> if the answers are displayed
+     *        over the card; otherwise <code>false</code> to prompt the user
+     *        to continue.
+     * @return The card.
+     */
+    static CardCache.Card drawCard(QuestionParser.Entry parsed, int width,
+            int height, boolean withAnswers) {
+        final int BORDER = 30;
+        String[] text = wrap(parsed.text);
+        GreenfootImage img = new GreenfootImage(width, height);
         img.setColor(Color.BLUE);
         img.fill();
         img.setFont(GameManager.SMALL_FONT);
@@ -218,17 +308,10 @@ public class Question extends Actor {
             img.drawString(text[i], 30, 40 + (i * 20));
         }
 
-        setImage(img);
-
-        if (displayAnswers && answers.size() != 0) {
-            World w = getWorld();
-            for (int i = 0; i < answers.size(); i++) {
-                w.addObject(answers.get(i), world.getWidth() / 2,
-                    (text.length * 25 + LINE_LENGTH) + i * 40);
-            }
-        } else {
+        if (!withAnswers) {
             img.drawString("Press space or click to continue..." , BORDER,
                 img.getHeight() - BORDER);
         }
+        return new CardCache.Card(img, 40 + text.length * 20, withAnswers);
     }
 }
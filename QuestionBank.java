@@ -0,0 +1,520 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A pool of questions drawn from many question files through an on-disk
+ * index.
+ *
+ * The question files of a bank are listed one per line in a list file,
+ * such as questionbank.list. The index is stored next to the list file
+ * with the extension ".index" and is rebuilt whenever a question file
+ * changes. It holds a table of categories, and for every question its
+ * value, number of answers and the byte offsets of its lines in the
+ * question file.
+ *
+ * Rounds made from a bank only hold question numbers. A question is read
+ * and decoded from its question file when the round first asks for it, so
+ * loading a board costs the same for any size of bank.
+ *
+ * @version 1.0
+ */
+public class QuestionBank {
+    public static final String LIST_EXTENSION = ".list";
+    public static final String INDEX_EXTENSION = ".index";
+    private static final int MAGIC = 0x4A424E4B; // "JBNK"
+    private static final int VERSION = 1;
+    // Category record: name offset, first question, question count
+    private static final int CATEGORY_SIZE = 12;
+    // Question record: source, index, value, answers, lines, lines offset
+    private static final int QUESTION_SIZE = 16;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset SOURCE_CHARSET = Charset.defaultCharset();
+
+    private final File[] sources;
+    private final ByteBuffer index;
+    private final int numBoardCategories;
+    private final int numCategories;
+    private final int categoryTable;
+    private final int questionTable;
+    private final QuestionParser parser = new QuestionParser(
+        GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+
+    private QuestionBank(File[] files, ByteBuffer buf, int boardCats,
+            int cats, int catTable, int questTable) {
+        sources = files;
+        index = buf;
+        numBoardCategories = boardCats;
+        numCategories = cats;
+        categoryTable = catTable;
+        questionTable = questTable;
+    }
+
+    /**
+     * Opens the question bank described by a list file, building its index
+     * if it is missing or out of date.
+     *
+     * @param listFile The file listing the question files of the bank.
+     * @return The question bank.
+     * @throws IOException if a file cannot be read or the index cannot be
+     *         written.
+     */
+    public static QuestionBank open(File listFile) throws IOException {
+        File[] files = readList(listFile);
+        File indexFile = indexFile(listFile);
+        QuestionBank bank = load(indexFile, files);
+        if (bank == null) {
+            build(files, indexFile);
+            bank = load(indexFile, files);
+            if (bank == null) {
+                throw new IOException("Cannot read index " + indexFile);
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * Returns the index file for a list file.
+     *
+     * @param listFile The file listing the question files of the bank.
+     * @return The index file.
+     */
+    public static File indexFile(File listFile) {
+        String name = listFile.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        return new File(listFile.getParentFile(), name + INDEX_EXTENSION);
+    }
+
+    /**
+     * Returns the number of board categories in the bank.
+     *
+     * @return The number of board categories.
+     */
+    public int getNumCategories() {
+        return numBoardCategories;
+    }
+
+    /**
+     * Returns the number of final round categories in the bank.
+     *
+     * @return The number of final round categories.
+     */
+    public int getNumFinalCategories() {
+        return numCategories - numBoardCategories;
+    }
+
+    /**
+     * Makes a round from randomly chosen categories of the bank. None of
+     * the questions are decoded until the round asks for them.
+     *
+     * @param rnd The random number generator used to choose categories.
+     * @return The round.
+     */
+    public Round makeRound(Random rnd) {
+        String[] cats = new String[GameManager.MAX_CATEGORIES];
+        int[] refs = new int[GameManager.MAX_QUESTS];
+        Arrays.fill(refs, -1);
+        int[] chosen = choose(rnd, 0, numBoardCategories, GameManager.COLS);
+        int count = 0;
+        for (int col = 0; col < chosen.length; col++) {
+            int cat = chosen[col];
+            cats[col] = getCategoryName(cat);
+            int first = getFirstQuestion(cat);
+            for (int q = first; q < first + getQuestionCount(cat); q++) {
+                int row = getQuestionIndex(q) % GameManager.ROWS;
+                if (refs[col * GameManager.ROWS + row] < 0) count++;
+                refs[col * GameManager.ROWS + row] = q;
+            }
+        }
+        int[] last = choose(rnd, numBoardCategories, numCategories, 1);
+        if (last.length > 0) {
+            cats[GameManager.MAX_CATEGORIES - 1] = getCategoryName(last[0]);
+            refs[GameManager.MAX_QUESTS - 1] = getFirstQuestion(last[0]);
+        }
+        return new Round(cats, this, refs, count);
+    }
+
+    /**
+     * Returns the value of a bank question.
+     *
+     * @param question The bank question number.
+     * @return The value of the question.
+     */
+    public int getValue(int question) {
+        return index.getInt(questionTable + question * QUESTION_SIZE + 4);
+    }
+
+    /**
+     * Returns the number of answers of a bank question.
+     *
+     * @param question The bank question number.
+     * @return The number of answers.
+     */
+    public int getAnswerCount(int question) {
+        return index.getShort(questionTable + question * QUESTION_SIZE + 8);
+    }
+
+    /**
+     * Reads and decodes a bank question from its question file.
+     *
+     * @param question The bank question number.
+     * @return The parsed question, or <code>null</code> if it cannot be
+     *         read.
+     */
+    public synchronized QuestionParser.Entry loadEntry(int question) {
+        int rec = questionTable + question * QUESTION_SIZE;
+        File source = sources[index.getShort(rec)];
+        int numLines = index.getShort(rec + 10);
+        int offsets = index.getInt(rec + 12);
+        List<String> lines = new ArrayList<String>(numLines);
+        try {
+            RandomAccessFile raf = new RandomAccessFile(source, "r");
+            try {
+                for (int i = 0; i < numLines; i++) {
+                    raf.seek(index.getLong(offsets + i * 8));
+                    lines.add(readLine(raf));
+                }
+            } finally {
+                raf.close();
+            }
+        } catch (IOException ioe) {
+            System.out.println("ERROR: cannot read question from " + source
+                + ": " + ioe.getMessage());
+            return null;
+        }
+        return parser.parseEntry(lines, getQuestionIndex(question));
+    }
+
+    private String getCategoryName(int cat) {
+        int pos = index.getInt(categoryTable + cat * CATEGORY_SIZE);
+        int len = index.getShort(pos) & 0xFFFF;
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = index.get(pos + 2 + i);
+        }
+        return new String(bytes, UTF8);
+    }
+
+    private int getFirstQuestion(int cat) {
+        return index.getInt(categoryTable + cat * CATEGORY_SIZE + 4);
+    }
+
+    private int getQuestionCount(int cat) {
+        return index.getInt(categoryTable + cat * CATEGORY_SIZE + 8);
+    }
+
+    private int getQuestionIndex(int question) {
+        return index.getShort(questionTable + question * QUESTION_SIZE + 2);
+    }
+
+    /**
+     * Chooses up to <code>n</code> distinct numbers from a range.
+     */
+    private static int[] choose(Random rnd, int from, int to, int n) {
+        int size = to - from;
+        if (size <= n) {
+            int[] all = new int[Math.max(size, 0)];
+            for (int i = 0; i < all.length; i++) all[i] = from + i;
+            return all;
+        }
+        Set<Integer> seen = new HashSet<Integer>();
+        int[] chosen = new int[n];
+        int count = 0;
+        while (count < n) {
+            int pick = from + rnd.nextInt(size);
+            if (seen.add(pick)) chosen[count++] = pick;
+        }
+        return chosen;
+    }
+
+    /**
+     * Reads the names of the question files from a list file. Blank lines
+     * and lines starting with '#' are skipped.
+     */
+    private static File[] readList(File listFile) throws IOException {
+        List<File> files = new ArrayList<File>();
+        BufferedReader reader = new BufferedReader(new FileReader(listFile));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                line = line.trim();
+                if (!line.equals("") && !line.startsWith("#")) {
+                    files.add(new File(listFile.getParentFile(), line));
+                }
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        return files.toArray(new File[files.size()]);
+    }
+
+    /**
+     * Maps an index file, returning <code>null</code> if it is missing,
+     * damaged or out of date.
+     */
+    private static QuestionBank load(File indexFile, File[] files) {
+        if (!indexFile.isFile()) return null;
+        try {
+            FileInputStream in = new FileInputStream(indexFile);
+            ByteBuffer buf;
+            try {
+                FileChannel channel = in.getChannel();
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            } finally {
+                in.close();
+            }
+            if (buf.getInt() != MAGIC || buf.getShort() != VERSION) {
+                return null;
+            }
+            if (buf.getInt() != files.length) return null;
+            for (int i = 0; i < files.length; i++) {
+                byte[] name = new byte[buf.getShort() & 0xFFFF];
+                buf.get(name);
+                if (!new String(name, UTF8).equals(files[i].getName())
+                        || buf.getLong() != files[i].length()
+                        || buf.getLong() != files[i].lastModified()) {
+                    return null; // stale
+                }
+            }
+            int boardCats = buf.getInt();
+            int cats = buf.getInt();
+            int quests = buf.getInt();
+            int catTable = buf.position();
+            int questTable = catTable + cats * CATEGORY_SIZE;
+            if (questTable + quests * QUESTION_SIZE > buf.limit()) return null;
+            return new QuestionBank(files, buf, boardCats, cats, catTable,
+                questTable);
+        } catch (IOException ioe) {
+            System.out.println("WARNING: cannot read " + indexFile + ": "
+                + ioe.getMessage());
+        } catch (BufferUnderflowException bue) {
+            System.out.println("WARNING: truncated index " + indexFile);
+        }
+        return null;
+    }
+
+    /**
+     * Builds the index for a list of question files.
+     */
+    private static void build(File[] files, File indexFile)
+            throws IOException {
+        QuestionParser parser = new QuestionParser(
+            GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+        List<Category> board = new ArrayList<Category>();
+        List<Category> last = new ArrayList<Category>();
+        List<IndexedQuestion> questions = new ArrayList<IndexedQuestion>();
+
+        for (int src = 0; src < files.length; src++) {
+            parser.read(new FileReader(files[src]));
+            String[] cats = parser.getCategories();
+            QuestionParser.Entry[] entries = parser.getEntries();
+            List<List<Long>> offsets = lineOffsets(files[src], parser,
+                entries);
+            Category cat = null;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] == null) continue;
+                int group = i / GameManager.ROWS;
+                if (cat == null || cat.group != group) {
+                    cat = new Category();
+                    cat.group = group;
+                    cat.name = cats[Math.min(group, cats.length - 1)];
+                    if (cat.name == null) cat.name = "";
+                    if (i == entries.length - 1) {
+                        last.add(cat);
+                    } else {
+                        board.add(cat);
+                    }
+                }
+                IndexedQuestion q = new IndexedQuestion();
+                q.source = src;
+                q.index = i;
+                q.value = entries[i].value;
+                q.answers = entries[i].answers.size();
+                q.offsets = offsets.get(i);
+                cat.questions.add(q);
+                questions.add(q);
+            }
+        }
+        List<Category> all = new ArrayList<Category>(board);
+        all.addAll(last);
+        write(indexFile, files, board.size(), all, questions.size());
+    }
+
+    /**
+     * Finds the byte offset of every line of each question in a file.
+     */
+    private static List<List<Long>> lineOffsets(File file,
+            QuestionParser parser, QuestionParser.Entry[] entries)
+            throws IOException {
+        List<List<Long>> offsets = new ArrayList<List<Long>>();
+        for (int i = 0; i < entries.length; i++) {
+            offsets.add(new ArrayList<Long>());
+        }
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long pos = 0;
+            long start = 0;
+            int b = in.read();
+            while (b >= 0) {
+                pos++;
+                if (b == '\n') {
+                    addOffset(offsets, parser, entries, line, start);
+                    line.reset();
+                    start = pos;
+                } else if (b != '\r') {
+                    line.write(b);
+                }
+                b = in.read();
+            }
+            addOffset(offsets, parser, entries, line, start);
+        } finally {
+            in.close();
+        }
+        return offsets;
+    }
+
+    private static void addOffset(List<List<Long>> offsets,
+            QuestionParser parser, QuestionParser.Entry[] entries,
+            ByteArrayOutputStream line, long start) {
+        if (line.size() == 0) return;
+        int i = parser.questionIndex(
+            new String(line.toByteArray(), SOURCE_CHARSET));
+        if (i >= 0 && i < entries.length && entries[i] != null) {
+            offsets.get(i).add(start);
+        }
+    }
+
+    /**
+     * Writes the index file.
+     */
+    private static void write(File indexFile, File[] files, int boardCats,
+            List<Category> cats, int numQuestions) throws IOException {
+        // Header
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeInt(files.length);
+        for (int i = 0; i < files.length; i++) {
+            writeString(header, files[i].getName());
+            header.writeLong(files[i].length());
+            header.writeLong(files[i].lastModified());
+        }
+        header.writeInt(boardCats);
+        header.writeInt(cats.size());
+        header.writeInt(numQuestions);
+        header.flush();
+        int dataStart = headerBytes.size() + cats.size() * CATEGORY_SIZE
+            + numQuestions * QUESTION_SIZE;
+
+        // Tables and the data they point to
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream tables = new DataOutputStream(tableBytes);
+        ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(dataBytes);
+        int first = 0;
+        for (int i = 0; i < cats.size(); i++) {
+            Category cat = cats.get(i);
+            tables.writeInt(dataStart + data.size());
+            writeString(data, cat.name);
+            tables.writeInt(first);
+            tables.writeInt(cat.questions.size());
+            first += cat.questions.size();
+        }
+        for (int i = 0; i < cats.size(); i++) {
+            List<IndexedQuestion> quests = cats.get(i).questions;
+            for (int j = 0; j < quests.size(); j++) {
+                IndexedQuestion q = quests.get(j);
+                tables.writeShort(q.source);
+                tables.writeShort(q.index);
+                tables.writeInt(q.value);
+                tables.writeShort(q.answers);
+                tables.writeShort(q.offsets.size());
+                tables.writeInt(dataStart + data.size());
+                for (int k = 0; k < q.offsets.size(); k++) {
+                    data.writeLong(q.offsets.get(k));
+                }
+            }
+        }
+        tables.flush();
+        data.flush();
+
+        FileOutputStream out = new FileOutputStream(indexFile);
+        try {
+            headerBytes.writeTo(out);
+            tableBytes.writeTo(out);
+            dataBytes.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        byte[] bytes = s.getBytes(UTF8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a line from the current position of a file.
+     */
+    private static String readLine(RandomAccessFile raf) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] buf = new byte[512];
+        int n = raf.read(buf);
+        while (n > 0) {
+            int end = 0;
+            while (end < n && buf[end] != '\n') end++;
+            line.write(buf, 0, end);
+            if (end < n) break;
+            n = raf.read(buf);
+        }
+        byte[] bytes = line.toByteArray();
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == '\r') len--;
+        return new String(bytes, 0, len, SOURCE_CHARSET);
+    }
+
+    /**
+     * A category while the index is being built.
+     */
+    private static class Category {
+        String name;
+        int group;
+        List<IndexedQuestion> questions = new ArrayList<IndexedQuestion>();
+    }
+
+    /**
+     * A question while the index is being built.
+     */
+    private static class IndexedQuestion {
+        int source;
+        int index;
+        int value;
+        int answers;
+        List<Long> offsets;
+    }
+}
@@ -0,0 +1,350 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compressed bundle of several question files with a table of contents.
+ *
+ * Each question file is deflated on its own, so one file can be read
+ * without inflating the others. The table of contents at the start of the
+ * bundle records the name, position, sizes and CRC-32 of every file. The
+ * cache key of a bundled file comes from the table of contents, so a cached
+ * round is found without decompressing anything, and a file that must be
+ * parsed is inflated as a stream straight into the parser. Its length and
+ * CRC-32 are checked when the stream reaches the end of the file.
+ *
+ * To bundle question files from the command line:
+ * <pre>java QuestionBundle questions.bundle java.txt cpp.txt</pre>
+ *
+ * @version 1.0
+ */
+public class QuestionBundle {
+    public static final String EXTENSION = ".bundle";
+    private static final int MAGIC = 0x4A42444C; // "JBDL"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ClassLoader loader;
+    private final String name;
+    private final Map<String, Entry> entries;
+    // Length of the header and table of contents before the first file
+    private final int dataStart;
+
+    private QuestionBundle(ClassLoader classLoader, String bundleName,
+            Map<String, Entry> toc, int start) {
+        loader = classLoader;
+        name = bundleName;
+        entries = toc;
+        dataStart = start;
+    }
+
+    /**
+     * Reads the table of contents of a bundle.
+     *
+     * @param classLoader The class loader used to find the bundle.
+     * @param bundleName The resource name of the bundle.
+     * @return The bundle.
+     * @throws IOException if the bundle cannot be found or read.
+     */
+    public static QuestionBundle open(ClassLoader classLoader,
+            String bundleName) throws IOException {
+        InputStream is = classLoader.getResourceAsStream(bundleName);
+        if (is == null) throw new IOException("No such file: " + bundleName);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        try {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a question bundle: " + bundleName);
+            }
+            int count = in.readShort() & 0xFFFF;
+            int start = 12 + in.readInt();
+            Map<String, Entry> toc = new LinkedHashMap<String, Entry>();
+            for (int i = 0; i < count; i++) {
+                Entry e = new Entry();
+                String entryName = in.readUTF();
+                e.offset = in.readLong();
+                e.compressedLength = in.readInt();
+                e.length = in.readInt();
+                e.crc = in.readInt() & 0xFFFFFFFFL;
+                toc.put(entryName, e);
+            }
+            return new QuestionBundle(classLoader, bundleName, toc, start);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the resource name of this bundle.
+     *
+     * @return The bundle name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the names of the question files in this bundle.
+     *
+     * @return The file names in bundle order.
+     */
+    public List<String> getFilenames() {
+        return Collections.unmodifiableList(
+            new ArrayList<String>(entries.keySet()));
+    }
+
+    /**
+     * Determines whether this bundle contains a question file.
+     *
+     * @param filename The name of the question file.
+     * @return <code>true</code> if the file is in this bundle; otherwise
+     *         <code>false</code>.
+     */
+    public boolean contains(String filename) {
+        return entries.containsKey(filename);
+    }
+
+    /**
+     * Returns the <code>RoundCache</code> key of a bundled file, which is
+     * the same key as for the uncompressed file.
+     *
+     * @param filename The name of the question file.
+     * @return The cache key.
+     * @throws IOException if the file is not in this bundle.
+     */
+    public String key(String filename) throws IOException {
+        Entry e = entry(filename);
+        return filename + "#" + e.length + "-" + Long.toHexString(e.crc);
+    }
+
+    /**
+     * Opens a reader that inflates a bundled file as it is read.
+     *
+     * @param filename The name of the question file.
+     * @return A reader for the text of the file.
+     * @throws IOException if the file is not in this bundle or the bundle
+     *         cannot be read.
+     */
+    public Reader openReader(String filename) throws IOException {
+        Entry e = entry(filename);
+        InputStream is = loader.getResourceAsStream(name);
+        if (is == null) throw new IOException("No such file: " + name);
+        try {
+            skipFully(is, dataStart + e.offset);
+        } catch (IOException ioe) {
+            is.close();
+            throw ioe;
+        }
+        InputStream data = new LimitedInputStream(is, e.compressedLength);
+        return new InputStreamReader(new EntryInputStream(data, e,
+            filename + " in " + name));
+    }
+
+    private Entry entry(String filename) throws IOException {
+        Entry e = entries.get(filename);
+        if (e == null) {
+            throw new IOException("No such file: " + filename + " in "
+                + name);
+        }
+        return e;
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException();
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    /**
+     * Writes a bundle of question files.
+     *
+     * @param target The bundle file to write.
+     * @param sources The question files to bundle.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static void write(File target, File[] sources) throws IOException {
+        List<byte[]> data = new ArrayList<byte[]>();
+        ByteArrayOutputStream tocBytes = new ByteArrayOutputStream();
+        DataOutputStream toc = new DataOutputStream(tocBytes);
+        long offset = 0;
+        for (int i = 0; i < sources.length; i++) {
+            byte[] content = Files.readAllBytes(sources[i].toPath());
+            byte[] compressed = deflate(content);
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length);
+            toc.writeUTF(sources[i].getName());
+            toc.writeLong(offset);
+            toc.writeInt(compressed.length);
+            toc.writeInt(content.length);
+            toc.writeInt((int) crc.getValue());
+            data.add(compressed);
+            offset += compressed.length;
+        }
+
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(target)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(sources.length);
+            out.writeInt(tocBytes.size());
+            tocBytes.writeTo(out);
+            for (int i = 0; i < data.size(); i++) out.write(data.get(i));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] deflate(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater);
+        out.write(content);
+        out.close();
+        deflater.end();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Bundles the question files named on the command line.
+     *
+     * @param args The name of the bundle followed by the names of the
+     *        question files.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println(
+                "Usage: java QuestionBundle bundle file1.txt file2.txt ...");
+            return;
+        }
+        File[] sources = new File[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            sources[i - 1] = new File(args[i]);
+        }
+        File target = new File(args[0]);
+        try {
+            write(target, sources);
+            System.out.println("Bundled " + sources.length + " files into "
+                + target + " (" + target.length() + " bytes)");
+        } catch (IOException ioe) {
+            System.out.println("ERROR: " + target + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * The table of contents entry for one question file.
+     */
+    private static class Entry {
+        long offset;
+        int compressedLength;
+        int length;
+        long crc;
+    }
+
+    /**
+     * Inflates one bundled file and checks it against its table of contents
+     * entry at the end of the file. Closing the stream releases the
+     * inflater, which holds native memory.
+     */
+    private static class EntryInputStream extends InflaterInputStream {
+        private final Entry entry;
+        private final String description;
+        private final CRC32 crc = new CRC32();
+        private long count;
+        private boolean checked;
+
+        EntryInputStream(InputStream in, Entry e, String desc) {
+            super(in, new Inflater(), BUFFER_SIZE);
+            entry = e;
+            description = desc;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                crc.update(b, off, n);
+                count += n;
+            } else if (n < 0 && !checked) {
+                checked = true;
+                if (count != entry.length || crc.getValue() != entry.crc) {
+                    throw new IOException("Corrupt file: " + description);
+                }
+            }
+            return n;
+        }
+
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+
+    /**
+     * Reads at most a fixed number of bytes from a stream, so the inflater
+     * never reads into the next file.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            remaining = limit;
+        }
+
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = in.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A catalog of the question files bundled with the game.
+ *
+ * At startup every question file is read in parallel on background threads
+ * to record its categories, question count and any problems found while
+ * parsing. Files that are not shipped uncompressed are read from the
+ * question bundle. No questions are built. The settings screen lists the
+ * files and shows what is wrong with the broken ones before a round is
+ * started, reading the results without waiting for the scan.
+ *
+ * The files are scanned again each time the settings screen is shown.
+ * The catalog is only informational: whether a round can be played is
+ * decided when it is loaded, so a file fixed since the last scan is not
+ * refused.
+ *
+ * @version 1.0
+ */
+public class QuestionCatalog {
+    private static final String EXTENSION = ".txt";
+    // Seconds an idle scanning thread waits for more files before it ends
+    private static final long IDLE_SECONDS = 5;
+    // Used when the question files cannot be listed, as inside a jar file
+    private static final String[] BUNDLED_FILES = {
+        "basics.txt", "basics2.txt", "cpp.txt", "greenfoot.txt",
+        "java.txt", "l33t.txt", "questions.txt", "questions2.txt",
+        "questions3.txt", "test.txt"
+    };
+
+    private final ClassLoader loader;
+    // Holds the question files not shipped uncompressed, if there is one
+    private final QuestionBundle bundle;
+    private final Map<String, Future<Info>> files =
+        new LinkedHashMap<String, Future<Info>>();
+    private final ExecutorService executor;
+
+    /**
+     * Starts scanning the question files found by a class loader.
+     *
+     * @param classLoader The class loader used to find question files.
+     * @return The catalog, which fills in as the files are scanned.
+     */
+    public static QuestionCatalog scan(ClassLoader classLoader) {
+        QuestionCatalog catalog = new QuestionCatalog(classLoader,
+            openBundle(classLoader));
+        catalog.rescan();
+        if (catalog.bundle != null) {
+            for (String name : catalog.bundle.getFilenames()) {
+                if (!catalog.contains(name)) catalog.add(name);
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Scans the question files beside the game classes again, so files
+     * added or edited since the last scan are described as they are now.
+     * Files still being scanned and files only in the bundle, which cannot
+     * change, are left alone. Returns without waiting for the scan.
+     */
+    public synchronized void rescan() {
+        String[] names = listFiles(loader);
+        for (int i = 0; i < names.length; i++) {
+            Future<Info> future = files.get(names[i]);
+            if (future == null || future.isDone()) add(names[i]);
+        }
+    }
+
+    private QuestionCatalog(ClassLoader classLoader,
+            QuestionBundle questionBundle) {
+        loader = classLoader;
+        bundle = questionBundle;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+            IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Question catalog");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        // Let the threads end between scans
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    /**
+     * Queues a question file for scanning.
+     */
+    private synchronized void add(final String filename) {
+        files.put(filename, executor.submit(new Callable<Info>() {
+            public Info call() {
+                return scanFile(filename);
+            }
+        }));
+    }
+
+    /**
+     * Returns the names of all question files in the catalog.
+     *
+     * @return The file names in the order they were found: the files
+     *         beside the game classes in alphabetical order, then the files
+     *         found only in the question bundle.
+     */
+    public synchronized List<String> getFilenames() {
+        return new ArrayList<String>(files.keySet());
+    }
+
+    /**
+     * Determines whether a question file is in the catalog.
+     *
+     * @param filename The name of the question file.
+     * @return <code>true</code> if the file was found when scanning;
+     *         otherwise <code>false</code>.
+     */
+    public synchronized boolean contains(String filename) {
+        return files.containsKey(filename);
+    }
+
+    /**
+     * Returns what the catalog knows about a question file, without waiting
+     * for its scan to finish, so it is safe to call from <code>act()</code>.
+     *
+     * @param filename The name of the question file.
+     * @return The file information, or <code>null</code> if the file is not
+     *         in the catalog or is still being scanned.
+     */
+    public synchronized Info getInfo(String filename) {
+        Future<Info> future = files.get(filename);
+        if (future == null || !future.isDone()) return null;
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ee) {
+            return new Info(filename, "cannot scan: " + ee.getCause());
+        }
+    }
+
+    /**
+     * Reads one question file without building its questions, looking in
+     * the question bundle when the file is not shipped uncompressed.
+     */
+    private Info scanFile(String filename) {
+        QuestionParser parser = new QuestionParser(
+            GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+        try {
+            InputStream is = loader.getResourceAsStream(filename);
+            Reader in;
+            if (is != null) {
+                in = new InputStreamReader(is);
+            } else if (bundle != null && bundle.contains(filename)) {
+                in = bundle.openReader(filename);
+            } else {
+                return new Info(filename, "No such file: " + filename);
+            }
+            parser.read(in);
+        } catch (IOException ioe) {
+            return new Info(filename, ioe.getMessage());
+        }
+        return new Info(filename, parser.getCategories(),
+            parser.getEntries(), parser.getProblems());
+    }
+
+    /**
+     * Opens the default question bundle, or returns <code>null</code> if
+     * there is none or it cannot be read.
+     */
+    private static QuestionBundle openBundle(ClassLoader classLoader) {
+        if (classLoader.getResource(GameManager.DEFAULT_BUNDLE) == null) {
+            return null;
+        }
+        try {
+            return QuestionBundle.open(classLoader, GameManager.DEFAULT_BUNDLE);
+        } catch (IOException ioe) {
+            System.out.println("WARNING: cannot open "
+                + GameManager.DEFAULT_BUNDLE + ": " + ioe.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Lists the question files beside the game classes, or the bundled
+     * file names if the directory cannot be listed.
+     */
+    private static String[] listFiles(ClassLoader classLoader) {
+        URL url = classLoader.getResource("basics.txt");
+        if (url != null && "file".equals(url.getProtocol())) {
+            try {
+                File dir = new File(url.toURI()).getParentFile();
+                String[] names = dir.list();
+                if (names != null) {
+                    List<String> found = new ArrayList<String>();
+                    for (int i = 0; i < names.length; i++) {
+                        if (names[i].endsWith(EXTENSION)) found.add(names[i]);
+                    }
+                    Collections.sort(found);
+                    return found.toArray(new String[found.size()]);
+                }
+            } catch (URISyntaxException use) {
+                // Fall through to the bundled list
+            }
+        }
+        return BUNDLED_FILES.clone();
+    }
+
+    /**
+     * What the catalog knows about one question file.
+     */
+    public static class Info {
+        private final String filename;
+        private final String[] categories;
+        private final int numQuestions;
+        private final boolean hasFinal;
+        private final List<String> problems;
+        private final String error;
+
+        Info(String name, String[] cats, QuestionParser.Entry[] entries,
+                List<String> messages) {
+            filename = name;
+            List<String> names = new ArrayList<String>();
+            for (int i = 0; i < cats.length; i++) {
+                if (cats[i] != null) names.add(cats[i]);
+            }
+            categories = names.toArray(new String[names.size()]);
+            int count = 0;
+            for (int i = 0; i < entries.length - 1; i++) {
+                if (entries[i] != null) count++;
+            }
+            numQuestions = count;
+            hasFinal = entries[entries.length - 1] != null;
+            problems = Collections.unmodifiableList(messages);
+            error = count == 0 ? "No questions in " + name : null;
+        }
+
+        Info(String name, String message) {
+            filename = name;
+            categories = new String[0];
+            numQuestions = 0;
+            hasFinal = false;
+            problems = Collections.emptyList();
+            error = message;
+        }
+
+        /**
+         * Returns the name of the question file.
+         *
+         * @return The file name.
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * Returns the names of the categories in the file.
+         *
+         * @return The category names.
+         */
+        public String[] getCategories() {
+            return categories.clone();
+        }
+
+        /**
+         * Returns the number of board questions in the file.
+         *
+         * @return The number of questions, not counting the final round
+         *         question.
+         */
+        public int getNumQuestions() {
+            return numQuestions;
+        }
+
+        /**
+         * Returns whether the file has a final round question.
+         *
+         * @return <code>true</code> if there is a final round question;
+         *         otherwise <code>false</code>.
+         */
+        public boolean hasFinalQuestion() {
+            return hasFinal;
+        }
+
+        /**
+         * Returns the errors and warnings found while reading the file.
+         *
+         * @return The messages printed by the parser.
+         */
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        /**
+         * Returns whether the file can be played.
+         *
+         * @return <code>true</code> if the file was read and has questions;
+         *         otherwise <code>false</code>.
+         */
+        public boolean isValid() {
+            return error == null;
+        }
+
+        /**
+         * Returns why the file cannot be played.
+         *
+         * @return The error message, or <code>null</code> if the file is
+         *         valid.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Returns a short description of the file for the player.
+         *
+         * @return The error, or the number of categories and questions.
+         */
+        public String getSummary() {
+            if (error != null) return error;
+            return categories.length + " categories, " + numQuestions
+                + " questions" + (hasFinal ? " + final" : "")
+                + (problems.isEmpty() ? "" : ", " + problems.size()
+                + " problems");
+        }
+
+        public String toString() {
+            return filename + ": " + getSummary();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Writes synthetic question files for testing how the loader scales.
+ *
+ * The files follow the format described in basics2.txt: a category for
+ * every group of five questions, two to five answers per question, and a
+ * mix of randomized answer orders, explanations, comments, forced new lines
+ * and \\uXXXX escapes. The same size and seed always produce the same file,
+ * so measurements can be compared from run to run. Files with more than
+ * <code>GameManager.MAX_QUESTS</code> questions can only be read by a
+ * parser created with larger limits.
+ *
+ * To write a file from the command line:
+ * <pre>java QuestionGenerator bank.txt 1000000 [seed]</pre>
+ *
+ * @version 1.0
+ */
+public class QuestionGenerator {
+    private static final String[] WORDS = {
+        "class", "object", "method", "variable", "loop", "array", "string",
+        "constructor", "parameter", "return", "value", "type", "field",
+        "world", "actor", "image", "integer", "boolean", "condition",
+        "statement", "compile", "error", "reference", "instance", "call"
+    };
+    // Symbols written as \\uXXXX escapes
+    private static final String[] ESCAPES = {
+        "\\u2260", "\\u2264", "\\u2265", "\\u0398", "\\u03C0", "\\u00B2"
+    };
+
+    private final Random rnd;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Constructs a generator.
+     *
+     * @param seed The seed for the generated contents.
+     */
+    public QuestionGenerator(long seed) {
+        rnd = new Random(seed);
+    }
+
+    /**
+     * Writes a question file.
+     *
+     * @param out The writer for the file, which is not closed.
+     * @param numQuestions The number of questions to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void generate(Writer out, int numQuestions) throws IOException {
+        out.write("# Synthetic question file with " + numQuestions
+            + " questions\n\n");
+        for (int i = 1; i <= numQuestions; i++) {
+            if (i % GameManager.ROWS == 1) {
+                int cat = (i - 1) / GameManager.ROWS + 1;
+                out.write(":CAT" + cat + ":" + words(2).toUpperCase()
+                    + "\n\n");
+            }
+            int value = ((i - 1) % GameManager.ROWS + 1) * 200;
+            out.write(":QUEST" + i + ":" + value + ":" + sentence(12) + "\n");
+            int numAnswers = 2 + rnd.nextInt(4);
+            int correct = rnd.nextInt(numAnswers);
+            for (int j = 0; j < numAnswers; j++) {
+                out.write(":ANSWER" + i + ":" + (j == correct ? 'T' : 'F')
+                    + ":" + sentence(5) + "\n");
+            }
+            if (rnd.nextInt(2) == 0) {
+                out.write(":ANSWERORDER" + i + ":randomized\n");
+            }
+            if (rnd.nextInt(5) < 3) {
+                out.write(":EXPLANATION" + i + ":" + sentence(20));
+                if (rnd.nextInt(4) == 0) {
+                    out.write("\\n\\n    " + sentence(6));
+                }
+                out.write("\n");
+            }
+            if (rnd.nextInt(10) == 0) out.write("# " + sentence(8) + "\n");
+            out.write("\n");
+        }
+    }
+
+    /**
+     * Returns a few random words separated by spaces.
+     */
+    private String words(int count) {
+        line.setLength(0);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) line.append(' ');
+            line.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Returns a random sentence of up to <code>maxWords</code> words, which
+     * sometimes contains an escaped symbol.
+     */
+    private String sentence(int maxWords) {
+        int count = 1 + rnd.nextInt(maxWords);
+        line.setLength(0);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) line.append(' ');
+            if (rnd.nextInt(20) == 0) {
+                // Followed by a space, since escapes take all hex digits
+                line.append(ESCAPES[rnd.nextInt(ESCAPES.length)]).append(' ');
+            }
+            line.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Writes the question file described on the command line.
+     *
+     * @param args The file name, the number of questions and an optional
+     *        seed.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println(
+                "Usage: java QuestionGenerator file.txt questions [seed]");
+            return;
+        }
+        try {
+            int numQuestions = Integer.parseInt(args[1]);
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+            Writer out = new BufferedWriter(new FileWriter(args[0]));
+            try {
+                new QuestionGenerator(seed).generate(out, numQuestions);
+            } finally {
+                out.close();
+            }
+            System.out.println("Wrote " + numQuestions + " questions to "
+                + args[0]);
+        } catch (NumberFormatException nfe) {
+            System.out.println("ERROR: not a number: " + nfe.getMessage());
+        } catch (IOException ioe) {
+            System.out.println("ERROR: " + args[0] + ": " + ioe.getMessage());
+        }
+    }
+}
@@ -0,0 +1,489 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a question file in a single pass and builds a round of questions.
+ *
+ * The parser builds only plain data, which can be read on any thread. The
+ * <code>Question</code> actors are built from it later by the round, on the
+ * act thread.
+ *
+ * Every line is classified once by its ":TAG" prefix, and Unicode escapes
+ * of the form \\uXXXX are decoded while the text of the line is copied.
+ * Answers, answer orders and explanations are collected for each question
+ * number and attached when the questions are built, so the statements of a
+ * question may appear in any order within the file.
+ *
+ * See basics2.txt for a description of the file format.
+ *
+ * @version 1.0
+ */
+public class QuestionParser {
+    private final int maxCategories;
+    private final int maxQuests;
+    private final StringBuilder buffer = new StringBuilder();
+    private String[] categories;
+    private Entry[] entries;
+    // Position of the next character to scan in the current line
+    private int pos;
+    // End of the tag name in the current line
+    private int tagEnd;
+    // Errors and warnings reported since the last read
+    private List<String> problems = new ArrayList<String>();
+
+    /**
+     * Constructs a parser with limits on the category and question numbers.
+     *
+     * @param maxCats The maximum number of categories.
+     * @param maxQuestions The maximum number of questions, including the
+     *        final round question.
+     */
+    public QuestionParser(int maxCats, int maxQuestions) {
+        maxCategories = maxCats;
+        maxQuests = maxQuestions;
+    }
+
+    /**
+     * Reads all the lines from the reader and builds a round of questions.
+     * The reader is closed when done.
+     *
+     * @param in The reader for the question file.
+     * @return The round of questions.
+     * @throws IOException if the file cannot be read.
+     */
+    public Round parse(Reader in) throws IOException {
+        read(in);
+        Round round = buildRound(categories, entries);
+        categories = null;
+        entries = null;
+        return round;
+    }
+
+    /**
+     * Reads all the lines from the reader and collects the categories and
+     * question entries without building any questions. Entries for question
+     * numbers without a question are reported and dropped. The reader is
+     * closed when done.
+     *
+     * @param in The reader for the question file.
+     * @throws IOException if the file cannot be read.
+     */
+    void read(Reader in) throws IOException {
+        problems = new ArrayList<String>();
+        categories = new String[maxCategories];
+        entries = new Entry[maxQuests];
+        BufferedReader reader = new BufferedReader(in);
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                parseLine(line);
+                line = reader.readLine();
+            }
+        } finally {
+            reader.close();
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != null && entries[i].text == null) {
+                reportOrphan(entries[i], i);
+                entries[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a single question from the lines that describe it.
+     *
+     * @param lines The QUEST, ANSWER, ANSWERORDER and EXPLANATION lines of
+     *        the question.
+     * @param index The question index used in the lines.
+     * @return The question entry, or <code>null</code> if the lines have no
+     *         question text.
+     */
+    Entry parseEntry(List<String> lines, int index) {
+        readLines(lines);
+        Entry e = index >= 0 && index < maxQuests ? entries[index] : null;
+        categories = null;
+        entries = null;
+        if (e == null || e.text == null) return null;
+        return e;
+    }
+
+    /**
+     * Collects the categories and question entries from a list of lines.
+     * Unlike <code>read</code>, statements without a question are kept.
+     *
+     * @param lines The lines to parse.
+     */
+    void readLines(List<String> lines) {
+        problems = new ArrayList<String>();
+        categories = new String[maxCategories];
+        entries = new Entry[maxQuests];
+        for (int i = 0; i < lines.size(); i++) {
+            parseLine(lines.get(i));
+        }
+    }
+
+    /**
+     * Returns the index of the category a line names, without recording the
+     * line.
+     *
+     * @param line A line from a question file.
+     * @return The category index of a CAT line, or -1 for any other line.
+     */
+    int categoryIndex(String line) {
+        int index = scanTag(line);
+        if (index >= 0 && isTag(line, tagEnd, "CAT")) return index;
+        return -1;
+    }
+
+    /**
+     * Returns the index of the question to which a line belongs, without
+     * recording the line.
+     *
+     * @param line A line from a question file.
+     * @return The question index of a QUEST, ANSWER, ANSWERORDER or
+     *         EXPLANATION line, or -1 for any other line.
+     */
+    int questionIndex(String line) {
+        int index = scanTag(line);
+        if (index < 0) return -1;
+        if (isTag(line, tagEnd, "QUEST") || isTag(line, tagEnd, "ANSWER")
+                || isTag(line, tagEnd, "ANSWERORDER")
+                || isTag(line, tagEnd, "EXPLANATION")) {
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the categories collected by the last call to <code>read</code>.
+     *
+     * @return The category names indexed by category number.
+     */
+    String[] getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns the entries collected by the last call to <code>read</code>.
+     *
+     * @return The question entries indexed by question number.
+     */
+    Entry[] getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the errors and warnings reported by the last call to
+     * <code>read</code>.
+     *
+     * @return The messages in the order they were reported.
+     */
+    List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Returns the maximum number of categories.
+     *
+     * @return The maximum number of categories.
+     */
+    int getMaxCategories() {
+        return maxCategories;
+    }
+
+    /**
+     * Returns the maximum number of questions.
+     *
+     * @return The maximum number of questions.
+     */
+    int getMaxQuests() {
+        return maxQuests;
+    }
+
+    /**
+     * Classifies a single line by its tag and records its contents.
+     *
+     * @param line The line to parse.
+     */
+    private void parseLine(String line) {
+        int index = scanTag(line);
+        if (index < -1) return;
+
+        if (isTag(line, tagEnd, "CAT")) {
+            String name = readText(line);
+            if (name != null) addCategory(index, name);
+        } else if (isTag(line, tagEnd, "QUEST")) {
+            int value = readNumber(line);
+            if (value < 0 || !skip(line, ':')) return;
+            String text = readText(line);
+            if (text != null) addQuestion(index, value, text);
+        } else if (isTag(line, tagEnd, "ANSWER")) {
+            if (pos >= line.length() || !isWordChar(line.charAt(pos))) return;
+            char correct = line.charAt(pos++);
+            if (!skip(line, ':')) return;
+            String text = readText(line);
+            if (text != null) {
+                Entry e = entryFor(index, "ANSWER for question number");
+                if (e != null) {
+                    e.answers.add(text);
+                    e.correct.add(correct == 'T' || correct == 't');
+                }
+            }
+        } else if (isTag(line, tagEnd, "ANSWERORDER")) {
+            String text = readText(line);
+            if (text != null) {
+                Entry e = entryFor(index, "ANSWERORDER for question number");
+                if (e != null) {
+                    e.orderCount++;
+                    if (text.equalsIgnoreCase("randomized")) {
+                        e.randomized = true;
+                    }
+                }
+            }
+        } else if (isTag(line, tagEnd, "EXPLANATION")) {
+            String text = readText(line);
+            if (text != null) {
+                Entry e = entryFor(index, "EXPLANATION for question number");
+                if (e != null) {
+                    if (e.explanation != null) {
+                        report(
+                            "WARNING: overwritting explanation for question "
+                            + (index + 1));
+                    }
+                    e.explanation = text;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the ":TAGn:" prefix of a line, leaving <code>tagEnd</code> at
+     * the end of the tag name and <code>pos</code> after the prefix.
+     *
+     * @param line The line to scan.
+     * @return The number in the prefix less one, or -2 if the line has no
+     *         prefix.
+     */
+    private int scanTag(String line) {
+        if (line.length() < 2 || line.charAt(0) != ':') return -2;
+        pos = 1;
+        while (pos < line.length() && Character.isLetter(line.charAt(pos))) {
+            pos++;
+        }
+        tagEnd = pos;
+        int index = readNumber(line) - 1;
+        if (index < -1 || !skip(line, ':')) return -2;
+        return index;
+    }
+
+    /**
+     * Records a category name.
+     */
+    private void addCategory(int index, String name) {
+        if (index < 0 || index >= maxCategories) {
+            report("WARNING: Category number "
+                + (index + 1) + " exceeds maximum allowed ("
+                + maxCategories + ")");
+        } else if (categories[index] != null) {
+            report("WARNING: repeating category " + (index + 1));
+        } else {
+            categories[index] = name;
+        }
+    }
+
+    /**
+     * Records the text and value of a question.
+     */
+    private void addQuestion(int index, int value, String text) {
+        if (index < 0 || index >= maxQuests) {
+            report("ERROR: QUESTION number "
+                + (index + 1) + " exceeds maximum allowed ("
+                + maxQuests + ")");
+            return;
+        }
+        if (entries[index] == null) entries[index] = new Entry();
+        Entry e = entries[index];
+        if (e.text != null) {
+            report("WARNING: repeating question " + (index + 1));
+        }
+        e.text = text;
+        e.value = value;
+    }
+
+    /**
+     * Returns the entry for a question number, creating it when needed.
+     *
+     * @param index The question index.
+     * @param what The statement name used in error messages.
+     * @return The entry, or <code>null</code> if the index is out of range.
+     */
+    private Entry entryFor(int index, String what) {
+        if (index < 0 || index >= maxQuests) {
+            report("ERROR: " + what + " "
+                + (index + 1) + " exceeds maximum allowed question ("
+                + maxQuests + ")");
+            return null;
+        }
+        if (entries[index] == null) entries[index] = new Entry();
+        return entries[index];
+    }
+
+    /**
+     * Builds a round from collected entries. The entries are shared by the
+     * round and must not be changed afterwards.
+     *
+     * @param cats The category names indexed by category number.
+     * @param entries The question entries indexed by question number.
+     * @return The round of questions.
+     */
+    Round buildRound(String[] cats, Entry[] entries) {
+        Entry[] questions = new Entry[maxQuests];
+        int numQuestions = 0;
+        for (int i = 0; i < entries.length && i < maxQuests; i++) {
+            Entry e = entries[i];
+            if (e == null || e.text == null) continue;
+            questions[i] = e;
+            numQuestions++;
+        }
+        // Adjust count for final round question
+        if (questions[maxQuests - 1] != null) numQuestions--;
+        return new Round(cats, questions, numQuestions);
+    }
+
+    /**
+     * Reports statements for a question number that has no question.
+     */
+    private void reportOrphan(Entry e, int index) {
+        for (int j = 0; j < e.answers.size(); j++) {
+            report("ERROR: ANSWER number "
+                + (index + 1) + "has no question.");
+        }
+        for (int j = 0; j < e.orderCount; j++) {
+            report("ERROR: ANSWERORDER number "
+                + (index + 1) + "has no question.");
+        }
+        if (e.explanation != null) {
+            report("ERROR: EXPLANATION number "
+                + (index + 1) + "has no question.");
+        }
+    }
+
+    /**
+     * Prints an error or warning and remembers it.
+     */
+    private void report(String message) {
+        System.out.println(message);
+        problems.add(message);
+    }
+
+    /**
+     * Tests if the tag ending at <code>tagEnd</code> is the specified name,
+     * ignoring case.
+     */
+    private static boolean isTag(String line, int tagEnd, String name) {
+        return tagEnd - 1 == name.length()
+            && line.regionMatches(true, 1, name, 0, name.length());
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || (c < 128 && Character.isLetterOrDigit(c));
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    /**
+     * Skips over the expected character.
+     *
+     * @return <code>true</code> if the character was found.
+     */
+    private boolean skip(String line, char c) {
+        if (pos < line.length() && line.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads an unsigned decimal number, saturating on overflow.
+     *
+     * @return The number read, or -1 if there are no digits.
+     */
+    private int readNumber(String line) {
+        int start = pos;
+        long n = 0;
+        while (pos < line.length()) {
+            char c = line.charAt(pos);
+            if (c < '0' || c > '9') break;
+            if (n <= Integer.MAX_VALUE) n = n * 10 + (c - '0');
+            pos++;
+        }
+        if (pos == start) return -1;
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Copies the rest of the line, decoding Unicode escapes.
+     *
+     * @return The decoded text, or <code>null</code> if the text is empty.
+     */
+    private String readText(String line) {
+        int len = line.length();
+        if (pos >= len) return null;
+        if (line.indexOf("\\u", pos) < 0) return line.substring(pos);
+        buffer.setLength(0);
+        while (pos < len) {
+            char c = line.charAt(pos++);
+            if (c == '\\' && pos + 1 < len && line.charAt(pos) == 'u'
+                    && hexValue(line.charAt(pos + 1)) >= 0) {
+                pos++;
+                int code = 0;
+                while (pos < len && hexValue(line.charAt(pos)) >= 0) {
+                    code = code * 16 + hexValue(line.charAt(pos));
+                    pos++;
+                }
+                buffer.append((char) code);
+            } else {
+                buffer.append(c);
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * The statements collected for a single question number.
+     */
+    static class Entry {
+        String text;
+        int value;
+        String explanation;
+        boolean randomized;
+        int orderCount;
+        List<String> answers = new ArrayList<String>();
+        List<Boolean> correct = new ArrayList<Boolean>();
+
+        /**
+         * Returns an estimate of the memory used by this entry in bytes.
+         *
+         * @return The estimated size of this entry.
+         */
+        int getSizeEstimate() {
+            final int OBJECT_SIZE = 48;
+            int size = OBJECT_SIZE + 2 * text.length();
+            if (explanation != null) size += 2 * explanation.length();
+            for (int i = 0; i < answers.size(); i++) {
+                size += OBJECT_SIZE + 2 * answers.get(i).length();
+            }
+            return size;
+        }
+    }
+}
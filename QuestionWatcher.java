@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches question files for edits and updates their cached rounds while
+ * the game is running.
+ *
+ * When a watched file changes, its lines are grouped by question number
+ * and compared with the previous version. Only the questions whose lines
+ * changed are parsed again; the other questions keep their parsed
+ * entries. The updated round then replaces the old one in the
+ * <code>RoundCache</code> in a single step, so the next game played from
+ * the file sees the edits. A round already prefetched from the old
+ * version is dropped by the game when it sees the cache change.
+ *
+ * @version 1.0
+ */
+public class QuestionWatcher {
+    private final RoundCache cache;
+    private final Map<File, Tracked> tracked = new HashMap<File, Tracked>();
+    private final Set<Path> dirs = new HashSet<Path>();
+    private WatchService service;
+
+    /**
+     * Constructs a watcher that updates rounds in a cache.
+     *
+     * @param roundCache The cache holding the rounds of watched files.
+     */
+    public QuestionWatcher(RoundCache roundCache) {
+        cache = roundCache;
+    }
+
+    /**
+     * Starts watching a question file whose round was just parsed.
+     *
+     * @param filename The name used to load the file.
+     * @param source The question file.
+     * @param content The contents the round was parsed from.
+     * @param round The cached round for the contents.
+     */
+    public synchronized void watch(String filename, File source,
+            byte[] content, Round round) {
+        File file = source.getAbsoluteFile();
+        Path dir = file.getParentFile().toPath();
+        try {
+            if (service == null) {
+                service = FileSystems.getDefault().newWatchService();
+                startThread();
+            }
+            if (dirs.add(dir)) {
+                dir.register(service, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_CREATE);
+            }
+        } catch (IOException ioe) {
+            System.out.println("WARNING: cannot watch " + file + ": "
+                + ioe.getMessage());
+            return;
+        }
+        tracked.put(file, new Tracked(filename,
+            RoundCache.key(filename, content), readLines(content), round));
+    }
+
+    /**
+     * Stops watching all files.
+     */
+    public synchronized void close() {
+        tracked.clear();
+        dirs.clear();
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ioe) {
+                // Nothing more to release
+            }
+            service = null;
+        }
+    }
+
+    private void startThread() {
+        final WatchService watching = service;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        processEvents(watching.take());
+                    }
+                } catch (InterruptedException ie) {
+                    // Stop watching
+                } catch (ClosedWatchServiceException cwse) {
+                    // Stop watching
+                }
+            }
+        }, "Question watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reloads the watched files named by the events of a directory.
+     */
+    private void processEvents(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        Set<File> changed = new HashSet<File>();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                synchronized (this) {
+                    changed.addAll(tracked.keySet());
+                }
+            } else {
+                Path name = (Path) event.context();
+                changed.add(dir.resolve(name).toFile().getAbsoluteFile());
+            }
+        }
+        key.reset();
+        for (File file : changed) reload(file);
+    }
+
+    /**
+     * Reloads a watched file if its contents changed.
+     *
+     * @param file The question file.
+     */
+    void reload(File file) {
+        Tracked old;
+        synchronized (this) {
+            old = tracked.get(file);
+        }
+        if (old == null) return;
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException ioe) {
+            // The file may be half saved; the next event retries
+            return;
+        }
+        String key = RoundCache.key(old.filename, content);
+        if (key.equals(old.key)) return;
+
+        List<String> lines = readLines(content);
+        int[] changes = new int[1];
+        Round round = update(old, lines, changes);
+        synchronized (this) {
+            if (tracked.get(file) != old) return; // reloaded meanwhile
+            tracked.put(file, new Tracked(old.filename, key, lines, round));
+            cache.replace(old.key, key, round);
+        }
+        System.out.println("Reloaded " + old.filename + ": " + changes[0]
+            + " questions changed");
+    }
+
+    /**
+     * Builds the round for the new lines of a file, parsing only the
+     * categories and questions whose lines changed.
+     */
+    private static Round update(Tracked old, List<String> lines,
+            int[] changes) {
+        QuestionParser parser = new QuestionParser(
+            GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+        Groups before = new Groups(parser, old.lines);
+        Groups after = new Groups(parser, lines);
+
+        String[] cats = old.round.getCategories();
+        if (!before.categories.equals(after.categories)) {
+            parser.readLines(after.categories);
+            cats = parser.getCategories();
+        }
+        QuestionParser.Entry[] questions =
+            new QuestionParser.Entry[parser.getMaxQuests()];
+        int count = 0;
+        for (int i = 0; i < questions.length; i++) {
+            List<String> now = after.questions.get(i);
+            if (now.equals(before.questions.get(i))) {
+                questions[i] = old.round.getEntry(i);
+            } else {
+                questions[i] = parser.parseEntry(now, i);
+                changes[0]++;
+            }
+            if (questions[i] != null) count++;
+        }
+        // Adjust count for final round question
+        if (questions[questions.length - 1] != null) count--;
+        return new Round(cats, questions, count);
+    }
+
+    private static List<String> readLines(byte[] content) {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new ByteArrayInputStream(content)));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                lines.add(line);
+                line = reader.readLine();
+            }
+        } catch (IOException ioe) {
+            // Not thrown when reading from memory
+        }
+        return lines;
+    }
+
+    /**
+     * The lines of a file grouped by category and question number.
+     */
+    private static class Groups {
+        final List<String> categories = new ArrayList<String>();
+        final List<List<String>> questions = new ArrayList<List<String>>();
+
+        Groups(QuestionParser parser, List<String> lines) {
+            for (int i = 0; i < parser.getMaxQuests(); i++) {
+                questions.add(new ArrayList<String>());
+            }
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                int index = parser.questionIndex(line);
+                if (index >= 0 && index < questions.size()) {
+                    questions.get(index).add(line);
+                } else if (parser.categoryIndex(line) >= 0) {
+                    categories.add(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * A watched file and the version of it that is cached.
+     */
+    private static class Tracked {
+        final String filename;
+        final String key;
+        final List<String> lines;
+        final Round round;
+
+        Tracked(String name, String cacheKey, List<String> fileLines,
+                Round cached) {
+            filename = name;
+            key = cacheKey;
+            lines = fileLines;
+            round = cached;
+        }
+    }
+}
@@ -8,8 +8,8 @@ import java.awt.*;
  * @version 1.0  11/21/10
  */
 public class Response extends Actor implements ActionListener {
-    private static final int LINE_LENGTH = 60;
-    private static GreenfootImage img;
+    // Width of the world less the border on each side
+    private static final int TEXT_WIDTH = 540;
     private Question question;
     private Type type;
     private Button right;
@@ -83,9 +83,6 @@ public class Response extends Actor implements ActionListener {
      * Clears the display area and removes this object from the world.
      */
     public void clear() {
-        GreenfootImage image = getImage();
-        image.setColor(Color.BLUE);
-        image.fill();
         if (type == Type.SELF) {
             world.removeObject(right);
             world.removeObject(wrong);
@@ -108,14 +105,35 @@ public class Response extends Actor implements ActionListener {
      */
     private void draw() {
         final int BORDER = 30;
-        String answer = question.getFirstCorrectAnswerText();
-        String[] explanation =
-            GameManager.wordWrap(question.getExplanation(), LINE_LENGTH);
-        int amount = question.getValue();
-        if (img == null) {
+        CardCache.Card card = world.getCardCache().getResponseCard(question,
+            type);
+        setImage(card.getImage());
+        if (type == Type.SELF) {
+            int x = BORDER;
+            int y = card.getBottom();
             World w = getWorld();
-            img = new GreenfootImage(w.getWidth(), w.getHeight());
+            w.addObject(right, x + 190, y + 23);
+            w.addObject(wrong, x + 270, y + 23);
         }
+    }
+
+    /**
+     * Draws the card for a response to a question. The question is read by
+     * the caller, so the card can be drawn on another thread.
+     *
+     * @param answer The text of the first correct answer, or
+     *        <code>null</code> if there is none.
+     * @param explanationText The explanation of the answer.
+     * @param amount The value of the question.
+     * @param type The type of the response.
+     * @param img The image to draw on, which is filled first.
+     * @return The card, whose bottom is below the explanation.
+     */
+    static CardCache.Card drawCard(String answer, String explanationText,
+            int amount, Type type, GreenfootImage img) {
+        final int BORDER = 30;
+        String[] explanation = GameManager.wordWrap(explanationText,
+            GameManager.SMALL_FONT, TEXT_WIDTH);
         img.setColor(Color.BLUE);
         img.fill();
         img.setColor(Color.WHITE);
@@ -126,15 +144,15 @@ public class Response extends Actor implements ActionListener {
         } else if (type == Type.WRONG) {
             text = "Sorry!";
         }
-        int y = printCentered(text, BORDER + 10, GameManager.LARGE_FONT);
-        y = printCentered("The correct question is...", y,
+        int y = printCentered(img, text, BORDER + 10, GameManager.LARGE_FONT);
+        y = printCentered(img, "The correct question is...", y,
             GameManager.MED_FONT);
         if (answer != null) {
             text = "\"What is " + answer + "\"";
         } else {
             text = "unknown (no answer prepared)";
         }
-        y = printCentered(text, y, GameManager.MED_FONT);
+        y = printCentered(img, text, y, GameManager.MED_FONT);
         if (type != Type.SELF) {
             text = "You ";
             if (type == Type.RIGHT) {
@@ -143,19 +161,17 @@ public class Response extends Actor implements ActionListener {
                 text += "lost";
             }
             text += " " + amount;
-            y = printCentered(text, y, GameManager.MED_FONT);
+            y = printCentered(img, text, y, GameManager.MED_FONT);
         }
 
         int x = BORDER;
         y += 10;
         img.setFont(GameManager.SMALL_FONT);
-        Graphics g = img.getAwtImage().getGraphics();
-        g.setFont(GameManager.SMALL_FONT);
-        FontMetrics fm = g.getFontMetrics();
-        int height = Math.round(fm.getHeight());
+        FontMetrics fm = TextMetrics.getFontMetrics(GameManager.SMALL_FONT);
+        int lineHeight = Math.round(fm.getHeight());
         for (int i = 0; i < explanation.length; i++) {
             img.drawString(explanation[i], x, y);
-            y += height;
+            y += lineHeight;
         }
 
         if (type != Type.SELF) {
@@ -163,29 +179,25 @@ public class Response extends Actor implements ActionListener {
                 img.getHeight() - BORDER);
         } else {
             img.drawString("My answer was: " , x, y + 30);
-            World w = getWorld();
-            w.addObject(right, x + 190, y + 23);
-            w.addObject(wrong, x + 270, y + 23);
         }
-
-        setImage(img);
+        return new CardCache.Card(img, y, true);
     }
 
     /**
      * Method printCentered displays a single centered line.
      *
+     * @param img The image to draw on.
      * @param line The line of text to display.
      * @param y The y location.
      * @param font The font to use.
      * @return The y location for use in the next print operation.
      */
-    private int printCentered(String line, int y, Font font) {
+    private static int printCentered(GreenfootImage img, String line, int y,
+            Font font) {
         final float LINE_HEIGHT_MULT = 1.15f;
         img.setFont(font);
-        Graphics g = img.getAwtImage().getGraphics();
-        g.setFont(font);
-        FontMetrics fm = g.getFontMetrics();
-        int x = img.getWidth() / 2 - fm.stringWidth(line) / 2;
+        FontMetrics fm = TextMetrics.getFontMetrics(font);
+        int x = img.getWidth() / 2 - TextMetrics.stringWidth(font, line) / 2;
         img.drawString(line, x, y);
         y += Math.round(fm.getHeight() * LINE_HEIGHT_MULT);
         return y;
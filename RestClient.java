@@ -1,25 +1,62 @@
 import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
 import javax.ws.rs.core.MediaType;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
 
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
 
-import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientHandlerException;
-import com.sun.jersey.api.client.ClientResponse;
-import com.sun.jersey.api.client.UniformInterfaceException;
-import com.sun.jersey.api.client.WebResource;
-
-
+/**
+ * Talks to the game server, which records the games and their players.
+ *
+ * All instances share one Jersey client, the web resources of the server's
+ * endpoints and one JSON mapper, which are safe to use from several
+ * threads, instead of creating a client for each request. Every response is
+ * read to the end or closed, so its connection is kept alive and reused by
+ * the next request.
+ *
+ * Requests time out instead of waiting forever for a server that does not
+ * answer. The asynchronous methods send requests on background threads and
+ * return at once with a <code>CompletableFuture</code>, so the game does
+ * not wait for the server; run the code that uses the result on the act
+ * thread by completing it with the world's <code>ActExecutor</code>.
+ */
 public class RestClient extends Actor {
-
-      public void act() 
+    private static final String SERVER =
+        "http://localhost:8080/location/ms/rest/";
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+    private static final int REQUEST_THREADS = 2;
+    private static final Client CLIENT = createClient();
+    private static final WebResource GET_GAME =
+        CLIENT.resource(SERVER + "getgame");
+    private static final WebResource POST_GAME =
+        CLIENT.resource(SERVER + "postgame");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ExecutorService REQUESTS =
+        Executors.newFixedThreadPool(REQUEST_THREADS, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Rest client");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+
+    public void act() 
     {
         // Add your action code here.
     }    
@@ -27,17 +64,10 @@ public class RestClient extends Actor {
   public void getQuiz(String key) {
     try {
 
-        Client client = Client.create();
+        ClientResponse response = GET_GAME.path(key)
+           .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
 
-        WebResource webResource = client
-           .resource("http://localhost:8080/location/ms/rest/getgame/"+key);
-
-        ClientResponse response = webResource.accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
-
-        if (response.getStatus() != 201) {
-           throw new RuntimeException("Failed : HTTP error code : "
-            + response.getStatus());
-        }
+        checkStatus(response);
 
         String output = response.getEntity(String.class);
 
@@ -57,24 +87,9 @@ public class RestClient extends Actor {
 
     try {
 
-        Client client = Client.create();
-
-        WebResource webResource = client
-           .resource("http://localhost:8080/location/ms/rest/postgame");
-
-        String input = "{\"gameName\":\""   +gameName+"\",\"playerName\":\""+playerName+"\"}";
-        //String input1 = "{\"gameName\":\"Game123\",\"playerName\":\"Neha\"}";
-         System.out.println(input);
-        ClientResponse response = webResource.type("application/json")
-           .post(ClientResponse.class, input);
-
-        if (response.getStatus() != 201) {
-            throw new RuntimeException("Failed : HTTP error code : "
-                 + response.getStatus());
-        }
+        String output = post(gameName, playerName);
 
         System.out.println("Output from Server .... \n");
-        String output = response.getEntity(String.class);
         System.out.println(output);
 
      } catch (Exception e) {
@@ -88,25 +103,15 @@ public class RestClient extends Actor {
     
 	public Game getCurrentGame(String gameID){
 		
-		Client client = Client.create();
-		
-		WebResource webResource = client
-				.resource("http://localhost:8080/location/ms/rest/getgame/"+gameID);
-		
-		ClientResponse response = webResource.type("application/json")
-				.get(ClientResponse.class);
+		ClientResponse response = GET_GAME.path(gameID)
+				.type("application/json").get(ClientResponse.class);
 
-		if(response.getStatus() != 201) {
-			throw new RuntimeException("Failed : HTTP error code : "
-					+ response.getStatus());
-		}
+		checkStatus(response);
 
-		ObjectMapper mapper = new ObjectMapper();
-		
 		GamesList game = new GamesList();
 		
 		try {
-			game = mapper.readValue(response.getEntity(String.class), GamesList.class);
+			game = MAPPER.readValue(response.getEntity(String.class), GamesList.class);
 		} catch (JsonParseException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -130,6 +135,80 @@ public class RestClient extends Actor {
 		
 	}
 
-    
-}
+    /**
+     * Records a player joining a game, without waiting for the server.
+     *
+     * @param gameName The id of the game.
+     * @param playerName The name of the player.
+     * @return A future completed with the server's reply, or with the
+     *         exception if the request failed or timed out.
+     */
+    public CompletableFuture<String> postDataAsync(final String gameName,
+            final String playerName) {
+        return CompletableFuture.supplyAsync(new Supplier<String>() {
+            public String get() {
+                return post(gameName, playerName);
+            }
+        }, REQUESTS);
+    }
+
+    /**
+     * Fetches a game from the server, without waiting for the server.
+     *
+     * @param gameID The id of the game.
+     * @return A future completed with the game, or with the exception if
+     *         the request failed or timed out.
+     */
+    public CompletableFuture<Game> getCurrentGameAsync(final String gameID) {
+        return CompletableFuture.supplyAsync(new Supplier<Game>() {
+            public Game get() {
+                return getCurrentGame(gameID);
+            }
+        }, REQUESTS);
+    }
+
+    /**
+     * Posts a player joining a game.
+     *
+     * @return The server's reply.
+     * @throws RuntimeException if the request fails.
+     */
+    private static String post(String gameName, String playerName) {
+        String input = "{\"gameName\":\""   +gameName+"\",\"playerName\":\""+playerName+"\"}";
+        //String input1 = "{\"gameName\":\"Game123\",\"playerName\":\"Neha\"}";
+         System.out.println(input);
+        ClientResponse response = POST_GAME.type("application/json")
+           .post(ClientResponse.class, input);
+
+        checkStatus(response);
+
+        return response.getEntity(String.class);
+    }
+
+    /**
+     * Creates the client shared by all requests, with its timeouts.
+     */
+    private static Client createClient() {
+        ClientConfig config = new DefaultClientConfig();
+        config.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT,
+            CONNECT_TIMEOUT_MILLIS);
+        config.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT,
+            READ_TIMEOUT_MILLIS);
+        return Client.create(config);
+    }
 
+    /**
+     * Fails a request unless the server created or returned the game,
+     * closing the response so its connection can be reused.
+     *
+     * @param response The server's response.
+     * @throws RuntimeException if the status is not 201.
+     */
+    private static void checkStatus(ClientResponse response) {
+        if (response.getStatus() != 201) {
+            response.close();
+            throw new RuntimeException("Failed : HTTP error code : "
+                + response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * A round of questions loaded from a question file.
+ *
+ * Questions are stored by question number, so questions 1 to 5 are in
+ * category 1, questions 6 to 10 in category 2, and so on. The last slot
+ * holds the optional final round question.
+ *
+ * A round holds the parsed questions as plain data, so it can be loaded,
+ * cached and copied on any thread. The <code>Question</code> actors are
+ * Greenfoot actors, which must only be created on the act thread, so each
+ * is built from its parsed question the first time
+ * <code>getQuestion()</code> asks for it.
+ *
+ * A round drawn from a <code>QuestionBank</code> holds references into the
+ * bank instead of parsed questions. Each question is decoded from the bank
+ * the first time it is asked for.
+ *
+ * A round kept in the <code>RoundCache</code> is shared between games and
+ * must not be changed. Call <code>copy()</code> to get questions that a
+ * game can display and modify.
+ *
+ * @version 1.0
+ */
+public class Round {
+    private final String[] categories;
+    private final QuestionParser.Entry[] entries;
+    // Built from the entries on the act thread when first asked for
+    private Question[] questions;
+    private final int numQuestions;
+    private final QuestionBank bank;
+    // Bank question numbers for questions not yet decoded, or -1 for none
+    private final int[] refs;
+    private int sizeEstimate = -1;
+
+    /**
+     * Constructs a round from parsed categories and questions.
+     *
+     * @param cats The category names indexed by category number.
+     * @param quests The parsed questions indexed by question number, which
+     *        must not be changed afterwards.
+     * @param count The number of board questions, not counting the final
+     *        round question.
+     */
+    public Round(String[] cats, QuestionParser.Entry[] quests, int count) {
+        this(cats, quests, count, null, null);
+    }
+
+    /**
+     * Constructs a round whose questions are decoded from a question bank
+     * when first used.
+     *
+     * @param cats The category names indexed by category number.
+     * @param bank The question bank.
+     * @param bankRefs The bank question numbers indexed by question number,
+     *        with -1 for missing questions.
+     * @param count The number of board questions, not counting the final
+     *        round question.
+     */
+    public Round(String[] cats, QuestionBank bank, int[] bankRefs, int count) {
+        this(cats, new QuestionParser.Entry[bankRefs.length], count, bank,
+            bankRefs);
+    }
+
+    private Round(String[] cats, QuestionParser.Entry[] quests, int count,
+            QuestionBank questionBank, int[] bankRefs) {
+        categories = cats;
+        entries = quests;
+        numQuestions = count;
+        bank = questionBank;
+        refs = bankRefs;
+    }
+
+    /**
+     * Returns a copy of this round that builds its own question objects.
+     * Answers of randomized questions are shuffled again for the copy. This
+     * may be called from any thread.
+     *
+     * @return A copy of this round.
+     */
+    public synchronized Round copy() {
+        int[] bankRefs = refs == null ? null : refs.clone();
+        return new Round(categories.clone(), entries.clone(), numQuestions,
+            bank, bankRefs);
+    }
+
+    /**
+     * Returns an estimate of the memory used by this round in bytes.
+     *
+     * @return The estimated size of this round.
+     */
+    public synchronized int getSizeEstimate() {
+        if (sizeEstimate < 0) {
+            int size = 0;
+            for (int i = 0; i < categories.length; i++) {
+                if (categories[i] != null) size += 2 * categories[i].length();
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] != null) size += entries[i].getSizeEstimate();
+            }
+            sizeEstimate = size;
+        }
+        return sizeEstimate;
+    }
+
+    /**
+     * Returns the category names indexed by category number.
+     *
+     * @return The category names.
+     */
+    public String[] getCategories() {
+        return categories;
+    }
+
+    /**
+     * Returns the question for a question number, building it the first
+     * time. Call from the act thread only.
+     *
+     * @param index The question index (question number - 1).
+     * @return The question, or <code>null</code> if there is none or it
+     *         cannot be decoded from the question bank.
+     */
+    public Question getQuestion(int index) {
+        if (questions == null) questions = new Question[entries.length];
+        if (questions[index] == null) {
+            QuestionParser.Entry e = getEntry(index);
+            if (e != null) questions[index] = new Question(e);
+        }
+        return questions[index];
+    }
+
+    /**
+     * Returns the parsed question for a question number, decoding it from
+     * the question bank if needed. This may be called from any thread, such
+     * as by the card renderer while the game is playing the round.
+     *
+     * @param index The question index (question number - 1).
+     * @return The parsed question, which must not be changed, or
+     *         <code>null</code> if there is none or it cannot be decoded.
+     */
+    public synchronized QuestionParser.Entry getEntry(int index) {
+        if (entries[index] == null && refs != null && refs[index] >= 0) {
+            entries[index] = bank.loadEntry(refs[index]);
+            refs[index] = -1;
+            sizeEstimate = -1;
+        }
+        return entries[index];
+    }
+
+    /**
+     * Determines whether there is a question for a question number, without
+     * decoding it.
+     *
+     * @param index The question index (question number - 1).
+     * @return <code>true</code> if there is a question; otherwise
+     *         <code>false</code>.
+     */
+    public synchronized boolean hasQuestion(int index) {
+        return entries[index] != null || (refs != null && refs[index] >= 0);
+    }
+
+    /**
+     * Returns the value of a question, without decoding it.
+     *
+     * @param index The question index (question number - 1).
+     * @return The value of the question, or 0 if there is none.
+     */
+    public synchronized int getValue(int index) {
+        if (questions != null && questions[index] != null) {
+            return questions[index].getValue();
+        }
+        if (entries[index] != null) return entries[index].value;
+        if (refs != null && refs[index] >= 0) {
+            return bank.getValue(refs[index]);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of question slots, including the final round
+     * question.
+     *
+     * @return The number of question slots.
+     */
+    public int getMaxQuestions() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the number of board questions, not counting the final round
+     * question.
+     *
+     * @return The number of board questions.
+     */
+    public int getNumQuestions() {
+        return numQuestions;
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A cache of parsed rounds keyed by file name and content hash.
+ *
+ * Editing a question file changes its hash, so the old round is never
+ * returned again and ages out of the cache. When the cache holds more
+ * rounds or more memory than allowed, the least recently used rounds are
+ * evicted first. The rounds in the cache are shared, so games must play a
+ * <code>copy()</code> of a round.
+ *
+ * @version 1.0
+ */
+public class RoundCache {
+    private final int maxRounds;
+    private final long maxBytes;
+    private long bytes;
+    private long version;
+    private final LinkedHashMap<String, Round> rounds =
+        new LinkedHashMap<String, Round>(16, 0.75f, true);
+
+    /**
+     * Constructs a cache with limits on its size.
+     *
+     * @param maxNumRounds The maximum number of rounds to keep.
+     * @param maxMemory The maximum estimated memory in bytes for all rounds.
+     */
+    public RoundCache(int maxNumRounds, long maxMemory) {
+        maxRounds = maxNumRounds;
+        maxBytes = maxMemory;
+    }
+
+    /**
+     * Returns the cache key for the contents of a question file.
+     *
+     * @param filename The name of the question file.
+     * @param content The contents of the question file.
+     * @return The cache key.
+     */
+    public static String key(String filename, byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        return filename + "#" + content.length + "-"
+            + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Returns the round for a key and marks it as recently used.
+     *
+     * @param key The cache key.
+     * @return The shared round, or <code>null</code> if not cached.
+     */
+    public synchronized Round get(String key) {
+        return rounds.get(key);
+    }
+
+    /**
+     * Adds a round to the cache, evicting the least recently used rounds
+     * to stay within the limits. The newest round is always kept.
+     *
+     * @param key The cache key.
+     * @param round The round to share; it must not be changed afterwards.
+     */
+    public synchronized void put(String key, Round round) {
+        Round old = rounds.put(key, round);
+        if (old != null) bytes -= old.getSizeEstimate();
+        bytes += round.getSizeEstimate();
+        Iterator<Map.Entry<String, Round>> it = rounds.entrySet().iterator();
+        while ((rounds.size() > maxRounds || bytes > maxBytes)
+                && rounds.size() > 1) {
+            Map.Entry<String, Round> eldest = it.next();
+            bytes -= eldest.getValue().getSizeEstimate();
+            it.remove();
+        }
+    }
+
+    /**
+     * Replaces a cached round with an updated round in one step, so no
+     * caller sees the file without a round.
+     *
+     * @param oldKey The cache key of the round being replaced.
+     * @param newKey The cache key of the updated round.
+     * @param round The updated round.
+     */
+    public synchronized void replace(String oldKey, String newKey,
+            Round round) {
+        Round old = rounds.remove(oldKey);
+        if (old != null) bytes -= old.getSizeEstimate();
+        put(newKey, round);
+        version++;
+    }
+
+    /**
+     * Returns a number that changes whenever a cached round is replaced,
+     * so callers holding a copy of an older round can tell it is stale.
+     *
+     * @return The number of rounds replaced so far.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Removes all rounds from the cache.
+     */
+    public synchronized void clear() {
+        rounds.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the number of rounds in the cache.
+     *
+     * @return The number of cached rounds.
+     */
+    public synchronized int size() {
+        return rounds.size();
+    }
+
+    /**
+     * Returns the estimated memory used by the cached rounds.
+     *
+     * @return The estimated size in bytes.
+     */
+    public synchronized long getSizeEstimate() {
+        return bytes;
+    }
+}
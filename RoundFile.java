@@ -0,0 +1,220 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Compiles question files into a compact binary round file and loads them
+ * back by memory-mapping the file.
+ *
+ * A compiled file sits next to its question file with the extension
+ * ".round", for example basics.txt compiles to basics.round. The header
+ * records the length and modification time of the question file, so a
+ * compiled file is ignored once the question file is edited.
+ *
+ * To compile question files from the command line:
+ * <pre>java RoundFile basics.txt basics2.txt</pre>
+ *
+ * @version 1.0
+ */
+public class RoundFile {
+    public static final String EXTENSION = ".round";
+    private static final int MAGIC = 0x4A524E44; // "JRND"
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int NO_STRING = 0xFFFF;
+
+    /**
+     * Returns the compiled file for the specified question file.
+     *
+     * @param source The question file.
+     * @return The compiled round file.
+     */
+    public static File compiledFile(File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        return new File(source.getParentFile(), name + EXTENSION);
+    }
+
+    /**
+     * Loads the compiled round for a question file.
+     *
+     * @param parser The parser used to build the questions.
+     * @param source The question file.
+     * @return The round of questions, or <code>null</code> if there is no
+     *         compiled file or it is out of date.
+     */
+    public static Round load(QuestionParser parser, File source) {
+        File compiled = compiledFile(source);
+        if (!compiled.isFile()) return null;
+        try {
+            FileInputStream in = new FileInputStream(compiled);
+            try {
+                FileChannel channel = in.getChannel();
+                MappedByteBuffer buf = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return read(parser, buf, source);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ioe) {
+            System.out.println("WARNING: cannot read " + compiled + ": "
+                + ioe.getMessage());
+        } catch (BufferUnderflowException bue) {
+            System.out.println("WARNING: truncated round file " + compiled);
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a question file and returns the round it contains.
+     *
+     * @param parser The parser used to read the question file.
+     * @param source The question file.
+     * @return The round of questions.
+     * @throws IOException if the question file cannot be read or the
+     *         compiled file cannot be written.
+     */
+    public static Round compile(QuestionParser parser, File source)
+            throws IOException {
+        long length = source.length();
+        long modified = source.lastModified();
+        parser.read(new FileReader(source));
+        String[] categories = parser.getCategories();
+        QuestionParser.Entry[] entries = parser.getEntries();
+        write(compiledFile(source), length, modified, categories, entries);
+        return parser.buildRound(categories, entries);
+    }
+
+    /**
+     * Writes the compiled form of a round.
+     */
+    private static void write(File target, long length, long modified,
+            String[] categories, QuestionParser.Entry[] entries)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(target)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(length);
+            out.writeLong(modified);
+            out.writeShort(categories.length);
+            for (int i = 0; i < categories.length; i++) {
+                writeString(out, categories[i]);
+            }
+            int count = 0;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] != null) count++;
+            }
+            out.writeShort(count);
+            for (int i = 0; i < entries.length; i++) {
+                QuestionParser.Entry e = entries[i];
+                if (e == null) continue;
+                out.writeShort(i);
+                out.writeInt(e.value);
+                out.writeBoolean(e.randomized);
+                writeString(out, e.text);
+                writeString(out, e.explanation);
+                out.writeShort(e.answers.size());
+                for (int j = 0; j < e.answers.size(); j++) {
+                    out.writeBoolean(e.correct.get(j));
+                    writeString(out, e.answers.get(j));
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Decodes a compiled round from a buffer.
+     *
+     * @return The round, or <code>null</code> if the buffer is not a current
+     *         compiled form of the source file.
+     */
+    private static Round read(QuestionParser parser, ByteBuffer buf,
+            File source) {
+        if (buf.getInt() != MAGIC || buf.getShort() != VERSION) return null;
+        if (buf.getLong() != source.length()
+                || buf.getLong() != source.lastModified()) {
+            return null; // stale
+        }
+        byte[] bytes = new byte[NO_STRING];
+        String[] categories = new String[parser.getMaxCategories()];
+        int numCategories = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < numCategories; i++) {
+            String name = readString(buf, bytes);
+            if (i < categories.length) categories[i] = name;
+        }
+        QuestionParser.Entry[] entries =
+            new QuestionParser.Entry[parser.getMaxQuests()];
+        int count = buf.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int index = buf.getShort() & 0xFFFF;
+            QuestionParser.Entry e = new QuestionParser.Entry();
+            e.value = buf.getInt();
+            e.randomized = buf.get() != 0;
+            e.text = readString(buf, bytes);
+            e.explanation = readString(buf, bytes);
+            int numAnswers = buf.getShort() & 0xFFFF;
+            for (int j = 0; j < numAnswers; j++) {
+                e.correct.add(buf.get() != 0);
+                e.answers.add(readString(buf, bytes));
+            }
+            if (index < entries.length) entries[index] = e;
+        }
+        return parser.buildRound(categories, entries);
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        if (s == null) {
+            out.writeShort(NO_STRING);
+            return;
+        }
+        byte[] bytes = s.getBytes(UTF8);
+        if (bytes.length >= NO_STRING) {
+            throw new IOException("Line too long: " + s.substring(0, 40));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf, byte[] bytes) {
+        int len = buf.getShort() & 0xFFFF;
+        if (len == NO_STRING) return null;
+        buf.get(bytes, 0, len);
+        return new String(bytes, 0, len, UTF8);
+    }
+
+    /**
+     * Compiles the question files named on the command line.
+     *
+     * @param args The names of the question files.
+     */
+    public static void main(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            File source = new File(args[i]);
+            try {
+                QuestionParser parser = new QuestionParser(
+                    GameManager.MAX_CATEGORIES, GameManager.MAX_QUESTS);
+                compile(parser, source);
+                System.out.println("Compiled " + source + " to "
+                    + compiledFile(source));
+            } catch (IOException ioe) {
+                System.out.println("ERROR: " + source + ": "
+                    + ioe.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Loads the next round on a background thread while the player is still
+ * looking at another screen.
+ *
+ * The act thread collects the finished round with <code>take()</code>. If
+ * the round is still loading, <code>take()</code> waits for it rather than
+ * starting the load again.
+ *
+ * Greenfoot actors must only be created on the act thread, so the loader
+ * only parses the round into plain data. The round builds its question
+ * actors on the act thread when the game shows them.
+ *
+ * @version 1.0
+ */
+public class RoundPrefetcher {
+    private String filename;
+    private FutureTask<Round> task;
+
+    /**
+     * Starts loading a round in the background, unless the same file is
+     * already being prefetched.
+     *
+     * @param name The name of the question file.
+     * @param loader Loads a round that the caller may modify, without
+     *        creating any actors.
+     */
+    public synchronized void prefetch(String name, Callable<Round> loader) {
+        if (task != null && name.equals(filename)) return;
+        cancel();
+        filename = name;
+        task = new FutureTask<Round>(loader);
+        Thread thread = new Thread(task, "Prefetch " + name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Hands over the prefetched round for a file.
+     *
+     * @param name The name of the question file.
+     * @return The prefetched round, or <code>null</code> if the file was not
+     *         prefetched or the prefetch failed for a reason other than I/O.
+     * @throws IOException if the file could not be read.
+     */
+    public Round take(String name) throws IOException {
+        FutureTask<Round> pending;
+        synchronized (this) {
+            if (task == null || !name.equals(filename)) return null;
+            pending = task;
+            task = null;
+            filename = null;
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            System.out.println("WARNING: prefetch of " + name + " failed: "
+                + ee.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Abandons any prefetch in progress.
+     */
+    public synchronized void cancel() {
+        if (task != null) task.cancel(true);
+        task = null;
+        filename = null;
+    }
+}
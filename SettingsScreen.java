@@ -3,6 +3,11 @@ import java.awt.*;
 
 /**
  * Displays the game settings and allows the user to adjust them.
+ * The question file may name several files joined with <code>+</code>
+ * to play a board generated from all of them. Below the file, the screen
+ * shows what the <code>QuestionCatalog</code> found in it, so a broken file
+ * is reported before the round starts, and "Next file" steps through the
+ * files the catalog found.
  *
  * @author Ed Parrish
  * @version 1.0  1/12/2011
@@ -10,8 +15,10 @@ import java.awt.*;
 public class SettingsScreen extends Actor implements ActionListener {
     private static final Color BACKGROUND = new Color(0xC6, 0xD6, 0xE0, 236);
     private static final Color FOREGROUND = new Color(0x30, 0x58, 0x7E);
+    private static final Color ERROR_COLOR = Color.RED;
+    private static final Font HINT_FONT = new Font("SansSerif", Font.PLAIN, 12);
     private static final int WIDTH = 340;
-    private static final int HEIGHT = 200;
+    private static final int HEIGHT = 240;
     private static final String DEFAULT_FILE = "basics.txt";
 
     private GameManager world;
@@ -19,7 +26,10 @@ public class SettingsScreen extends Actor implements ActionListener {
     private Button timerButton;
     private Button choicesButton;
     private Button continueButton;
+    private Button nextFileButton;
     private TextField fileTF;
+    // What the catalog found in the file typed in
+    private Label status;
     private String file = DEFAULT_FILE;
 
     /**
@@ -53,6 +63,9 @@ public class SettingsScreen extends Actor implements ActionListener {
         world.removeObject(timerButton);
         world.removeObject(choicesButton);
         world.removeObject(continueButton);
+        world.removeObject(fileTF);
+        world.removeObject(nextFileButton);
+        world.removeObject(status);
         //world.removeObject(userNameTF);
         //world.removeObject(gameIDTF);
         world.removeObject(this);
@@ -80,11 +93,48 @@ public class SettingsScreen extends Actor implements ActionListener {
                 choicesButton.setText("On");
                 world.setProvideChoices(true);
             }
+        } else if (c == nextFileButton) {
+            showNextFile();
         } else if (c == continueButton || c == fileTF) {
             world.startRound();
         }
     }
 
+    /**
+     * Shows what the catalog found in the question file typed in. Only
+     * finished scans are read, so acting never waits for the catalog.
+     */
+    public void act() {
+        String name = fileTF.getText().trim();
+        QuestionCatalog catalog = GameManager.getCatalog();
+        String text = "";
+        Color color = FOREGROUND;
+        if (catalog != null && catalog.contains(name)) {
+            QuestionCatalog.Info info = catalog.getInfo(name);
+            if (info == null) {
+                text = "Checking " + name + "...";
+            } else {
+                text = info.getSummary();
+                if (!info.isValid()) color = ERROR_COLOR;
+            }
+        }
+        status.setForeground(color);
+        status.setText(text);
+    }
+
+    /**
+     * Fills in the catalog file after the one typed in, starting over after
+     * the last file.
+     */
+    private void showNextFile() {
+        QuestionCatalog catalog = GameManager.getCatalog();
+        if (catalog == null) return;
+        java.util.List<String> names = catalog.getFilenames();
+        if (names.isEmpty()) return;
+        int next = names.indexOf(fileTF.getText().trim()) + 1;
+        fileTF.setText(names.get(next % names.size()));
+    }
+
     /**
      * Save the world and draw it.
      *
@@ -105,6 +155,8 @@ public class SettingsScreen extends Actor implements ActionListener {
         final int BUTTON_WIDTH = 42;
         final int BUTTON_HEIGHT = 30;
         final int X_OFFSET = 119;
+        final int BUTTON_SPACE = 70;
+        int top = getY() - HEIGHT / 2;
 
         if (img == null) {
             img = new GreenfootImage(WIDTH, HEIGHT);
@@ -126,29 +178,42 @@ public class SettingsScreen extends Actor implements ActionListener {
         y = printCentered(text, GameManager.SMALL_FONT, 20, y + 8);
         img.setFont(GameManager.SMALL_FONT);
         img.drawString("Question file:", BORDER, y + 35);
+        text = "Mix boards with +, e.g. java.txt+cpp.txt";
+        printCentered(text, HINT_FONT, 0, y + 40);
 
         setImage(img);
 
-        timerButton = new Button("On", GameManager.SMALL_FONT, FOREGROUND);
+        timerButton = new Button(world.getProvideTimer() ? "On" : "Off",
+            GameManager.SMALL_FONT, FOREGROUND);
         timerButton.setSize(new Dimension(BUTTON_WIDTH, BUTTON_HEIGHT));
         timerButton.addActionListener(this);
-        world.addObject(timerButton, getX() - X_OFFSET, 217);
+        world.addObject(timerButton, getX() - X_OFFSET, top + 53);
 
-        choicesButton = new Button("On", GameManager.SMALL_FONT, FOREGROUND);
+        choicesButton = new Button(world.getProvideChoices() ? "On" : "Off",
+            GameManager.SMALL_FONT, FOREGROUND);
         choicesButton.setSize(new Dimension(BUTTON_WIDTH, BUTTON_HEIGHT));
         choicesButton.addActionListener(this);
-        world.addObject(choicesButton, getX() - X_OFFSET, 258);
+        world.addObject(choicesButton, getX() - X_OFFSET, top + 94);
 
 
         fileTF = new TextField(file, 10, GameManager.SMALL_FONT);
         fileTF.requestFocus();
         fileTF.addActionListener(this);
-        world.addObject(fileTF, getX() + 68, getY() + 29);
+        world.addObject(fileTF, getX() + 68, top + 129);
+
+        status = new Label("", HINT_FONT, FOREGROUND);
+        status.setSize(new Dimension(WIDTH - BORDER, 32));
+        world.addObject(status, getX(), top + 172);
+
+        nextFileButton = new Button("Next file", GameManager.SMALL_FONT,
+            FOREGROUND);
+        nextFileButton.addActionListener(this);
+        world.addObject(nextFileButton, getX() - BUTTON_SPACE, top + 205);
 
         continueButton = new Button("Continue", GameManager.SMALL_FONT,
             FOREGROUND);
         continueButton.addActionListener(this);
-        world.addObject(continueButton, getX(), getY() + 70);
+        world.addObject(continueButton, getX() + BUTTON_SPACE, top + 205);
     }
 
     /**
@@ -163,10 +228,8 @@ public class SettingsScreen extends Actor implements ActionListener {
     private int printCentered(String line, Font font, int x, int y) {
         final float LINE_HEIGHT_MULT = 1.2f;
         img.setFont(font);
-        Graphics g = img.getAwtImage().getGraphics();
-        g.setFont(font);
-        FontMetrics fm = g.getFontMetrics();
-        x += (img.getWidth() - fm.stringWidth(line)) / 2;
+        FontMetrics fm = TextMetrics.getFontMetrics(font);
+        x += (img.getWidth() - TextMetrics.stringWidth(font, line)) / 2;
         y += Math.round(fm.getHeight() * LINE_HEIGHT_MULT);
         img.drawString(line, x, y);
         return y;
@@ -0,0 +1,270 @@
+import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Plays the sound effects of the game without decoding them on each play.
+ *
+ * When loaded, every sound listed in soundindex.list is read from the
+ * sounds directory and decoded on a background thread. A few clips are
+ * opened for each sound, so a sound starts at once when played, even when
+ * it is still playing from before. A sound that is not loaded yet, or
+ * that could not be opened, is played with
+ * <code>Greenfoot.playSound()</code> as before.
+ *
+ * The time from asking for a sound to the clip starting is measured for
+ * every play, to check that sounds keep up with the game.
+ *
+ * @version 1.0
+ */
+public class SoundBank {
+    private static final String INDEX = "soundindex.list";
+    private static final String SOUND_DIR = "sounds/";
+    // Clips per sound, so a sound can overlap itself
+    private static final int POOL_SIZE = 2;
+
+    private final Map<String, Effect> effects =
+        new ConcurrentHashMap<String, Effect>();
+    private long latencyCount;
+    private long latencyTotal;
+    private long latencyMax;
+
+    private SoundBank() { }
+
+    /**
+     * Starts loading the sounds in the background.
+     *
+     * @param loader The class loader that finds the sound files.
+     * @return The sound bank, which plays sounds while still loading.
+     */
+    public static SoundBank load(final ClassLoader loader) {
+        final SoundBank bank = new SoundBank();
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                bank.loadAll(loader);
+            }
+        }, "Sound loader");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return bank;
+    }
+
+    /**
+     * Plays a sound once.
+     *
+     * @param name The name of the sound file in the sounds directory.
+     */
+    public void play(String name) {
+        Effect effect = effects.get(name);
+        if (effect == null) {
+            Greenfoot.playSound(name);
+        } else {
+            effect.play();
+        }
+    }
+
+    /**
+     * Returns whether a sound is loaded and ready to play at once.
+     *
+     * @param name The name of the sound file.
+     * @return <code>true</code> if the sound is ready; otherwise
+     *         <code>false</code>.
+     */
+    public boolean isLoaded(String name) {
+        return effects.containsKey(name);
+    }
+
+    /**
+     * Returns the average time from playing a sound to the clip starting.
+     *
+     * @return The average latency in milliseconds, or 0 if nothing played.
+     */
+    public synchronized double getAverageLatency() {
+        if (latencyCount == 0) return 0;
+        return latencyTotal / 1e6 / latencyCount;
+    }
+
+    /**
+     * Returns the longest time from playing a sound to the clip starting.
+     *
+     * @return The largest latency in milliseconds.
+     */
+    public synchronized double getMaxLatency() {
+        return latencyMax / 1e6;
+    }
+
+    /**
+     * Returns the number of plays whose latency was measured.
+     *
+     * @return The number of measured plays.
+     */
+    public synchronized long getLatencyCount() {
+        return latencyCount;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencyCount++;
+        latencyTotal += nanos;
+        latencyMax = Math.max(latencyMax, nanos);
+    }
+
+    /**
+     * Loads every sound in the index, reporting those that cannot be used.
+     */
+    private void loadAll(ClassLoader loader) {
+        for (String name : readIndex(loader)) {
+            try {
+                effects.put(name, decode(loader, name));
+            } catch (IOException ioe) {
+                System.out.println("WARNING: " + name + ": "
+                    + ioe.getMessage());
+            } catch (UnsupportedAudioFileException uafe) {
+                System.out.println("WARNING: " + name + ": "
+                    + uafe.getMessage());
+            } catch (LineUnavailableException lue) {
+                System.out.println("WARNING: " + name + ": "
+                    + lue.getMessage());
+            } catch (IllegalArgumentException iae) {
+                // Thrown when the system has no clips at all
+                System.out.println("WARNING: sounds play by name: "
+                    + iae.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the sound file names listed in the index.
+     */
+    private static List<String> readIndex(ClassLoader loader) {
+        List<String> names = new ArrayList<String>();
+        InputStream in = loader.getResourceAsStream(INDEX);
+        if (in == null) {
+            System.out.println("WARNING: No such file: " + INDEX);
+            return names;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() != 0) names.add(line);
+            }
+        } catch (IOException ioe) {
+            System.out.println("WARNING: " + INDEX + ": " + ioe.getMessage());
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ioe) { /* already read */ }
+        }
+        return names;
+    }
+
+    /**
+     * Decodes a sound file and opens its clips.
+     */
+    private Effect decode(ClassLoader loader, String name)
+            throws IOException, UnsupportedAudioFileException,
+            LineUnavailableException {
+        InputStream in = loader.getResourceAsStream(SOUND_DIR + name);
+        if (in == null) throw new IOException("No such file: " + name);
+        AudioInputStream audio = AudioSystem.getAudioInputStream(
+            new BufferedInputStream(in));
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = audio.read(buf)) != -1) data.write(buf, 0, n);
+            return new Effect(audio.getFormat(), data.toByteArray());
+        } finally {
+            audio.close();
+        }
+    }
+
+    /**
+     * The clips of one sound, used in turn.
+     */
+    private class Effect implements LineListener {
+        private final Clip[] clips = new Clip[POOL_SIZE];
+        // When each clip was asked to play, or 0 once it started
+        private final long[] triggered = new long[POOL_SIZE];
+        private int next;
+
+        Effect(AudioFormat format, byte[] data)
+                throws LineUnavailableException {
+            try {
+                for (int i = 0; i < clips.length; i++) {
+                    clips[i] = AudioSystem.getClip();
+                    clips[i].open(format, data, 0, data.length);
+                    clips[i].addLineListener(this);
+                }
+            } catch (LineUnavailableException lue) {
+                close();
+                throw lue;
+            }
+        }
+
+        /**
+         * Plays the sound on a clip that is not playing, or restarts the
+         * clip that was started first if all are playing.
+         */
+        synchronized void play() {
+            int chosen = next;
+            for (int i = 0; i < clips.length; i++) {
+                int c = (next + i) % clips.length;
+                if (!clips[c].isActive()) {
+                    chosen = c;
+                    break;
+                }
+            }
+            next = (chosen + 1) % clips.length;
+            Clip clip = clips[chosen];
+            clip.stop();
+            clip.setFramePosition(0);
+            triggered[chosen] = System.nanoTime();
+            clip.start();
+        }
+
+        /**
+         * Measures the latency when a clip starts.
+         */
+        public void update(LineEvent event) {
+            if (event.getType() != LineEvent.Type.START) return;
+            long now = System.nanoTime();
+            long start = 0;
+            synchronized (this) {
+                for (int i = 0; i < clips.length; i++) {
+                    if (clips[i] == event.getLine()) {
+                        start = triggered[i];
+                        triggered[i] = 0;
+                    }
+                }
+            }
+            if (start != 0) recordLatency(now - start);
+        }
+
+        private void close() {
+            for (int i = 0; i < clips.length; i++) {
+                if (clips[i] != null) clips[i].close();
+            }
+        }
+    }
+}
@@ -1,9 +1,18 @@
 import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
+import java.awt.AlphaComposite;
 import java.awt.Color;
+import java.awt.Graphics2D;
 
 /**
  * Displays flashing screens.
  *
+ * The flashing cells are drawn on a single image covering the game board,
+ * so only this actor acts and is drawn, however many cells there are. Each
+ * flash is turned off by a timing wheel: a ring of slots, one per tick of
+ * time, holding the cells whose flash ends in that tick. A frame only looks
+ * at the slots of the ticks that passed and repaints only the cells that
+ * turned on or off.
+ *
  * @author Neha Parmar
  * @version 
  */
@@ -11,19 +20,40 @@ public class SplashScreen extends Actor {
     public static final int FLASH_WIDTH = 85;
     public static final int FLASH_HEIGHT = 61;
     public static final Color FLASH_COLOR = new Color(0, 0x99, 0xFF);
-    // Images for the flasher
-    private static GreenfootImage onImage;
-    private static GreenfootImage offImage;
-    // Flash duration
+    private static final Color TRANSPARENT = new Color(0, 0, 0, 0);
+    // Location of the top-left cell and spacing of the cells
+    private static final int FIRST_X = 66;
+    private static final int FIRST_Y = 128;
+    private static final int SPACE_X = 94;
+    private static final int SPACE_Y = 68;
+    private static final int CELLS = GameManager.ROWS * GameManager.COLS;
+    // Time between flashes in milliseconds
     private static final long DELAY = 70;
+    // Flash duration in milliseconds
+    private static final long DURATION = 100;
+    // Length of a tick of the timing wheel in nanoseconds
+    private static final long TICK = 10000000L;
+    // Number of slots of the timing wheel, more ticks than a flash lasts
+    private static final int SLOTS = 16;
     // Keep track of flash duration
     private long lastFlashTime;
     // Reference to the world to which this instance is added
     private GameManager world;
     // Title for the splash screen
     private Label title;
-    // Grid of flashers
-    private Flasher[][] grid = new Flasher[GameManager.ROWS][GameManager.COLS];
+    // Image of all the cells and a context drawing on it
+    private GreenfootImage board;
+    private Graphics2D graphics;
+    // Whether each cell is flashing, and the tick at which it turns off
+    private boolean[] lit = new boolean[CELLS];
+    private long[] offTick = new long[CELLS];
+    // Cells to check in each slot of the timing wheel
+    private int[][] wheel = new int[SLOTS][CELLS];
+    private int[] slotSize = new int[SLOTS];
+    // Time in nanoseconds from which ticks are counted
+    private long startTime;
+    // The last tick whose slot was checked
+    private long currentTick;
 
     /**
      * SplashScreen constructor.
@@ -31,9 +61,17 @@ public class SplashScreen extends Actor {
     public SplashScreen() { }
 
     /**
-     * Trigger the flashes.
+     * Ends the flashes that are over and triggers new ones.
      */
     public void act() {
+        long now = (System.nanoTime() - startTime) / TICK;
+        // After a long pause, checking every slot once is enough
+        long ticks = Math.min(now - currentTick, SLOTS);
+        for (long t = 1; t <= ticks; t++) {
+            expire((int) ((currentTick + t) % SLOTS), now);
+        }
+        currentTick = now;
+
         // Time the flashes
         if (System.currentTimeMillis() - lastFlashTime < DELAY) {
             return;
@@ -42,7 +80,7 @@ public class SplashScreen extends Actor {
         // Trigger flashers
         int row = Greenfoot.getRandomNumber(GameManager.ROWS);
         int col = Greenfoot.getRandomNumber(GameManager.COLS);
-        grid[row][col].startFlash(100);
+        startFlash(row * GameManager.COLS + col, DURATION);
     }
 
     /**
@@ -60,74 +98,80 @@ public class SplashScreen extends Actor {
      */
     public void clear() {
         world.removeObject(title);
-        for (int row = 0; row < GameManager.ROWS; row++) {
-            for (int col = 0; col < GameManager.COLS; col++) {
-                world.removeObject(grid[row][col]);
-            }
-        }
         world.removeObject(this);
+        if (graphics != null) {
+            graphics.dispose();
+            graphics = null;
+        }
     }
 
     /**
      * Draw the screen objects.
      */
     private void draw() {
-        if (onImage == null) {
-            onImage = new GreenfootImage(FLASH_WIDTH, FLASH_HEIGHT);
-            onImage.setColor(FLASH_COLOR);
-            onImage.fill();
-        }
-        if (offImage == null) {
-            offImage = new GreenfootImage(FLASH_WIDTH, FLASH_HEIGHT);
-        }
         title = new Label(new GreenfootImage("greenfoot_jeopardy.gif"));
         world.addObject(title, 302, 45);
-        for (int row = 0; row < GameManager.ROWS; row++) {
-            for (int col = 0; col < GameManager.COLS; col++) {
-                grid[row][col] = new Flasher();
-                world.addObject(grid[row][col], 66 + 94 * col, 128 + row * 68);
-            }
-        }
+        int width = SPACE_X * (GameManager.COLS - 1) + FLASH_WIDTH;
+        int height = SPACE_Y * (GameManager.ROWS - 1) + FLASH_HEIGHT;
+        board = new GreenfootImage(width, height);
+        graphics = board.getAwtImage().createGraphics();
+        // Replace the pixels of a cell, so turning it off makes it clear
+        graphics.setComposite(AlphaComposite.Src);
+        setImage(board);
+        // Line up the cells with the buttons of the game board
+        setLocation(FIRST_X - FLASH_WIDTH / 2 + width / 2,
+            FIRST_Y - FLASH_HEIGHT / 2 + height / 2);
+        for (int i = 0; i < CELLS; i++) lit[i] = false;
+        for (int i = 0; i < SLOTS; i++) slotSize[i] = 0;
+        // Counting from now keeps ticks and slot numbers non-negative
+        startTime = System.nanoTime();
+        currentTick = 0;
     }
 
     /**
-     * Screen flashes.
+     * Start the flash of a cell, or make a flash last longer.
      *
-     * @author Ed Parrish
-     * @version 1.0  1/12/2011
+     * @param cell The number of the cell, counting across the rows.
+     * @param duration The length of the flash in milliseconds.
      */
-    public class Flasher extends Actor {
-        // Flash duration time in milliseconds
-        private long flashTime;
-        // Timer variable used to prevent keystrokes from going too fast
-        private long startTime;
-
-        /**
-         * Flasher constructor.
-         */
-        public Flasher() {
-            setImage(offImage);
+    private void startFlash(int cell, long duration) {
+        long ticks = (duration * 1000000L + TICK - 1) / TICK;
+        long due = currentTick + Math.max(1, Math.min(ticks, SLOTS - 1));
+        if (!lit[cell]) {
+            paintCell(cell, FLASH_COLOR);
+            lit[cell] = true;
+        } else if (offTick[cell] == due) {
+            return;
         }
+        int slot = (int) (due % SLOTS);
+        wheel[slot][slotSize[slot]++] = cell;
+        offTick[cell] = due;
+    }
 
-        /**
-         * Check to see if it is time to turn off the flash.
-         */
-        public void act() {
-            if (System.currentTimeMillis() - startTime < flashTime) {
-                return;
+    /**
+     * Turns off the cells in a slot whose flashes ended. Cells whose flash
+     * was made longer are also in the slot of their new end, so they are
+     * dropped from this one.
+     */
+    private void expire(int slot, long now) {
+        for (int i = 0; i < slotSize[slot]; i++) {
+            int cell = wheel[slot][i];
+            if (lit[cell] && offTick[cell] <= now) {
+                lit[cell] = false;
+                paintCell(cell, TRANSPARENT);
             }
-            setImage(offImage);
         }
+        slotSize[slot] = 0;
+    }
 
-        /**
-         * Start the flash.
-         *
-         * @param duration The length of the flash.
-         */
-        public void startFlash(long duration) {
-            flashTime = duration;
-            setImage(onImage);
-            startTime = System.currentTimeMillis();
-        }
+    /**
+     * Fills a cell of the board image with a color.
+     */
+    private void paintCell(int cell, Color color) {
+        if (graphics == null) return;
+        int x = SPACE_X * (cell % GameManager.COLS);
+        int y = SPACE_Y * (cell / GameManager.COLS);
+        graphics.setColor(color);
+        graphics.fillRect(x, y, FLASH_WIDTH, FLASH_HEIGHT);
     }
 }
@@ -5,11 +5,16 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Insets;
+import java.awt.KeyEventDispatcher;
+import java.awt.KeyboardFocusManager;
 import java.awt.Shape;
+import java.awt.event.KeyEvent;
 import java.awt.font.FontRenderContext;
 import java.awt.font.TextHitInfo;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Class <code>TextField</code> is a Greenfoot component that allows the user
@@ -43,6 +48,13 @@ public class TextField extends GUIComponent {
     private static final long BLINK_DELAY = 400;
     // Padding to leave small horizontal gap between box edge and cursor
     private static final int X_PAD = 1;
+    // Keys typed for the focused text field, queued by the AWT event thread
+    private static final Queue<KeyEvent> keyEvents =
+        new ConcurrentLinkedQueue<KeyEvent>();
+    // Cleared if keys cannot be queued as typed, so the keyboard is polled
+    private static boolean keysBuffered = true;
+    // Queues the keys while a text field in the world has the focus
+    private static KeyEventDispatcher dispatcher;
     // Input text buffer
     private StringBuilder input;
     // Width of the input field
@@ -170,17 +182,64 @@ public class TextField extends GUIComponent {
         // Ignore keystrokes if not the focus owner
         if (!isFocusOwner()) return;
 
-        // Blink the cursor
+        if (keysBuffered) {
+            startListening();
+            processKeyEvents();
+        } else {
+            pollKeys();
+        }
+
+        // Blink the cursor. The caret images are drawn when the text field
+        // is painted, so while a paint is pending they are out of date and
+        // the paint shows the caret instead.
         if (System.currentTimeMillis() - lastBlinkTime > BLINK_DELAY) {
             lastBlinkTime = System.currentTimeMillis();
             blinkOn = !blinkOn;
-            if (blinkOn) {
-                setImage(cursorOn);
-            } else {
-                setImage(cursorOff);
+            if (isValid() && cursorOn != null) {
+                if (blinkOn) {
+                    setImage(cursorOn);
+                } else {
+                    setImage(cursorOff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes every key typed since the last frame, in order. The text
+     * is painted once afterwards, however many keys there were. Stops after
+     * the Enter key, so a listener moving the focus gets the keys after it.
+     */
+    private void processKeyEvents() {
+        KeyEvent e;
+        while ((e = keyEvents.poll()) != null) {
+            if (e.getID() == KeyEvent.KEY_PRESSED) {
+                if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+                    moveCaret(true);
+                } else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+                    moveCaret(false);
+                }
+                continue;
+            }
+            char c = e.getKeyChar();
+            if (c == '\n' || c == '\r') {
+                fireActionEvent();
+                return;
+            } else if (c == '\b') {
+                deleteBackward();
+            } else if (!Character.isISOControl(c)
+                    && c != KeyEvent.CHAR_UNDEFINED) {
+                insert(String.valueOf(c));
             }
         }
+    }
 
+    /**
+     * Polls the keyboard once per frame, when key events cannot be
+     * listened to. Keys typed faster than <code>KEYSTOKE_DELAY</code>
+     * apart may be missed.
+     */
+    private void pollKeys() {
         // Slow down keystrokes on fast systems
         if (System.currentTimeMillis() - lastKeystrokeTime < KEYSTOKE_DELAY) {
             return;
@@ -188,36 +247,61 @@ public class TextField extends GUIComponent {
         lastKeystrokeTime = System.currentTimeMillis();
 
         // Process keystrokes
-        TextHitInfo newPosition = null;
         String key = Greenfoot.getKey();
         if (key != null && key.length() == 1) {
             // Single character keystrokes like: 'a'...'z', '0'...'9'
-            deleteHighlighedChars();
-            input.insert(index1, key);
-            index1++;
-            index2 = index1;
-            repaint();
+            insert(key);
         } else if (Greenfoot.isKeyDown("space")) {
-            deleteHighlighedChars();
-            input.insert(index1, " ");
-            index1++;
-            index2 = index1;
-            repaint();
+            insert(" ");
         } else if (Greenfoot.isKeyDown("backspace")) {
-            if (index1 != index2) {
-                deleteHighlighedChars();
-                repaint();
-            } else if (input.length() > 0 && index1 > 0) {
-                --index1;
-                input.deleteCharAt(index1);
-                index2 = index1;
-                repaint();
-            }
+            deleteBackward();
         } else if (Greenfoot.isKeyDown("enter")) {
             fireActionEvent();
-        } else if (Greenfoot.isKeyDown("right") && layout != null) {
+        } else if (Greenfoot.isKeyDown("right")) {
+            moveCaret(true);
+        } else if (Greenfoot.isKeyDown("left")) {
+            moveCaret(false);
+        }
+    }
+
+    /**
+     * Replaces any highlighted text with the specified text, leaving the
+     * caret after it.
+     */
+    private void insert(String str) {
+        deleteHighlighedChars();
+        input.insert(index1, str);
+        index1 += str.length();
+        index2 = index1;
+        repaint();
+    }
+
+    /**
+     * Deletes the highlighted text, or the character before the caret.
+     */
+    private void deleteBackward() {
+        if (index1 != index2) {
+            deleteHighlighedChars();
+            repaint();
+        } else if (input.length() > 0 && index1 > 0) {
+            --index1;
+            input.deleteCharAt(index1);
+            index2 = index1;
+            repaint();
+        }
+    }
+
+    /**
+     * Moves the caret one character right or left.
+     */
+    private void moveCaret(boolean right) {
+        // Lay out text typed earlier in this frame before moving past it
+        validate();
+        if (layout == null) return;
+        TextHitInfo newPosition = null;
+        if (right) {
             newPosition = layout.getNextRightHit(index2);
-        } else if (Greenfoot.isKeyDown("left") && layout != null) {
+        } else {
             newPosition = layout.getNextLeftHit(index1);
         }
         if (newPosition != null) {
@@ -227,6 +311,72 @@ public class TextField extends GUIComponent {
         }
     }
 
+    /**
+     * Requests that this text field get the input focus. When the focus
+     * moves here from another text field, as when a listener of its Enter
+     * key moves the focus, the keys typed after the Enter key are kept for
+     * this text field. Otherwise keys typed before it had the focus are
+     * ignored.
+     *
+     * @return <code>true</code> if the focus succeeds and <code>false</code>
+     *         if the focus fails.
+     */
+    public boolean requestFocus() {
+        boolean fromTextField = getFocusOwner() instanceof TextField
+            && getFocusOwner() != this;
+        boolean focused = super.requestFocus();
+        if (focused && !fromTextField) keyEvents.clear();
+        return focused;
+    }
+
+    /**
+     * Listens to the keyboard, queueing the keys typed while a text field
+     * has the focus so none are lost between frames. A focused text field
+     * calls this when it acts, so keys are only queued while the game runs.
+     * If keys cannot be listened to, they are polled instead.
+     */
+    private static synchronized void startListening() {
+        if (dispatcher != null || !keysBuffered) return;
+        KeyEventDispatcher listener = new KeyEventDispatcher() {
+            public boolean dispatchKeyEvent(KeyEvent e) {
+                GUIComponent owner = getFocusOwner();
+                if (!(owner instanceof TextField)
+                        || owner.getWorld() == null) {
+                    // The focused field was removed or lost the focus
+                    stopListening();
+                } else if (e.getID() == KeyEvent.KEY_TYPED
+                        || e.getID() == KeyEvent.KEY_PRESSED
+                        && (e.getKeyCode() == KeyEvent.VK_LEFT
+                        || e.getKeyCode() == KeyEvent.VK_RIGHT)) {
+                    keyEvents.add(e);
+                }
+                return false; // Greenfoot still sees every key
+            }
+        };
+        try {
+            KeyboardFocusManager.getCurrentKeyboardFocusManager()
+                .addKeyEventDispatcher(listener);
+            dispatcher = listener;
+        } catch (SecurityException se) {
+            System.out.println("WARNING: polling keys: " + se.getMessage());
+            keysBuffered = false;
+        }
+    }
+
+    /**
+     * Stops listening to the keyboard and drops the keys not yet processed.
+     * The world calls this when the game stops, so a world that is reset or
+     * recompiled leaves no listener behind holding on to its classes.
+     */
+    public static synchronized void stopListening() {
+        if (dispatcher != null) {
+            KeyboardFocusManager.getCurrentKeyboardFocusManager()
+                .removeKeyEventDispatcher(dispatcher);
+            dispatcher = null;
+        }
+        keyEvents.clear();
+    }
+
     /**
      * Set the text to be displayed.
      *
@@ -301,7 +451,7 @@ public class TextField extends GUIComponent {
             img = new GreenfootImage(getWidth(), getHeight());
         } else {
             // Calculate image size based on text height & numCols
-            FontMetrics fm = g.getFontMetrics();
+            FontMetrics fm = TextMetrics.getFontMetrics(g.getFont());
             String text = getText();
             if (text == null) text = "";
             int width = fm.charWidth('m') * numCols;
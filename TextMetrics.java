@@ -0,0 +1,119 @@
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures text for the screens and components, without a graphics context
+ * to draw in.
+ *
+ * The font metrics of each font are created once, from a graphics context
+ * kept for measuring, and shared. The widths and bounds of recently measured
+ * strings are remembered, so the labels, prompts and digits drawn again on
+ * every screen change are measured only once. Text is measured the same way
+ * as when drawn on a <code>GreenfootImage</code>, which uses the default
+ * rendering of a <code>BufferedImage</code>.
+ *
+ * @version 1.0
+ */
+public class TextMetrics {
+    private static final int MAX_CACHED = 1024;
+    // Measures text without a world or an image to draw in
+    private static final Graphics2D GRAPHICS =
+        new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    private static final Map<Font, FontMetrics> METRICS =
+        new HashMap<Font, FontMetrics>();
+    private static final Map<Key, Rectangle2D> BOUNDS =
+        new LinkedHashMap<Key, Rectangle2D>(64, 0.75f, true) {
+            protected boolean removeEldestEntry(
+                    Map.Entry<Key, Rectangle2D> e) {
+                return size() > MAX_CACHED;
+            }
+        };
+    private static final Map<Key, Integer> WIDTHS =
+        new LinkedHashMap<Key, Integer>(64, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> e) {
+                return size() > MAX_CACHED;
+            }
+        };
+
+    private TextMetrics() { }
+
+    /**
+     * Returns the font metrics for a font.
+     *
+     * @param font The font.
+     * @return The shared font metrics.
+     */
+    public static synchronized FontMetrics getFontMetrics(Font font) {
+        FontMetrics fm = METRICS.get(font);
+        if (fm == null) {
+            fm = GRAPHICS.getFontMetrics(font);
+            METRICS.put(font, fm);
+        }
+        return fm;
+    }
+
+    /**
+     * Returns the advance width of a string in a font.
+     *
+     * @param font The font.
+     * @param str The string to measure.
+     * @return The width of the string in pixels.
+     */
+    public static synchronized int stringWidth(Font font, String str) {
+        Key key = new Key(font, str);
+        Integer width = WIDTHS.get(key);
+        if (width == null) {
+            width = getFontMetrics(font).stringWidth(str);
+            WIDTHS.put(key, width);
+        }
+        return width;
+    }
+
+    /**
+     * Returns the logical bounds of a string in a font.
+     *
+     * @param font The font.
+     * @param str The string to measure.
+     * @return A new rectangle with the bounds of the string.
+     */
+    public static synchronized Rectangle2D getStringBounds(Font font,
+            String str) {
+        Key key = new Key(font, str);
+        Rectangle2D bounds = BOUNDS.get(key);
+        if (bounds == null) {
+            bounds = getFontMetrics(font).getStringBounds(str, GRAPHICS);
+            BOUNDS.put(key, bounds);
+        }
+        // Rectangles can be changed, so never hand out the cached one
+        return (Rectangle2D) bounds.clone();
+    }
+
+    /**
+     * Identifies a measured string by its font and text.
+     */
+    private static class Key {
+        private final Font font;
+        private final String text;
+
+        Key(Font f, String str) {
+            font = f;
+            text = str;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return font.equals(k.font) && text.equals(k.text);
+        }
+
+        public int hashCode() {
+            return font.hashCode() * 31 + text.hashCode();
+        }
+    }
+}
@@ -75,7 +75,7 @@ public class UserEntryScreen extends AbstractActor implements ActionListener
             userName = userNameTF.getText();
             gameId = gameIDTF.getText();
             System.out.println("starting the game now:"+ gameIDTF.getText() + userNameTF.getText());
-            world.startRound();
+            world.showSettings();
         }
         
         /*
@@ -196,10 +196,8 @@ public class UserEntryScreen extends AbstractActor implements ActionListener
     private int printCentered(String line, Font font, int x, int y) {
         final float LINE_HEIGHT_MULT = 1.2f;
         img.setFont(font);
-        Graphics g = img.getAwtImage().getGraphics();
-        g.setFont(font);
-        FontMetrics fm = g.getFontMetrics();
-        x += (img.getWidth() - fm.stringWidth(line)) / 2;
+        FontMetrics fm = TextMetrics.getFontMetrics(font);
+        x += (img.getWidth() - TextMetrics.stringWidth(font, line)) / 2;
         y += Math.round(fm.getHeight() * LINE_HEIGHT_MULT);
         img.drawString(line, x, y);
         return y;